@@ -0,0 +1,70 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Inputs shared by the benchmarks: the real snapshots in data/ and generated seasons of any size
+ */
+class BenchmarkData {
+    // Set by the jmh block in build.gradle
+    static final File DATA_DIRECTORY = new File(System.getProperty("benchmark.data", "data"));
+
+    // Name of the @Param value that selects a generated season instead of a real snapshot
+    static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    private static final String[] TEAMS = {"McLaren", "Ferrari", "Red Bull Racing", "Mercedes", "Aston Martin",
+            "Alpine", "Haas F1 Team", "Racing Bulls", "Williams", "Kick Sauber"};
+
+    /**
+     * Load the pilots for a benchmark parameter
+     * @param source A legacy file in data/ like "pilots.dat", or "synthetic-DRIVERSxRACES" like "synthetic-20x24"
+     * @return The pilots
+     */
+    static List<Piloto> load(String source) throws IOException {
+        if (source.startsWith(SYNTHETIC_PREFIX)) {
+            String[] size = source.substring(SYNTHETIC_PREFIX.length()).split("x");
+            return season(Integer.parseInt(size[0]), Integer.parseInt(size[1]), 42);
+        }
+        return DataManager.loadLegacyPilots(new File(DATA_DIRECTORY, source));
+    }
+
+    /**
+     * Generate a season where every circuit has points, value and trend
+     * @param drivers The number of drivers
+     * @param races The number of races each driver has run
+     * @param seed The random seed, so every fork measures the same data
+     * @return The pilots
+     */
+    static List<Piloto> season(int drivers, int races, long seed) {
+        Random random = new Random(seed);
+        List<Piloto> pilots = new ArrayList<>(drivers);
+        for (int d = 0; d < drivers; d++) {
+            Piloto piloto = new Piloto("Driver" + d + " " + TEAMS[d % TEAMS.length]);
+            double value = 5 + random.nextInt(250) / 10.0;
+            for (int r = 0; r < races; r++) {
+                double trend = (random.nextInt(7) - 3) / 10.0;
+                value = Math.max(3.0, value + trend);
+                piloto.addCircuitData("Race " + r, random.nextInt(60) - 10, value, trend);
+            }
+            piloto.setValue(value);
+            pilots.add(piloto);
+        }
+        return pilots;
+    }
+
+    /**
+     * Silence System.out so console printing doesn't dominate the measurement
+     * @return The original stream, to restore after the benchmark
+     */
+    static PrintStream muteStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
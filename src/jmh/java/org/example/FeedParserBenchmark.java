@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the feed mode's parsing of the sample feeds in src/test/resources/feeds, the same feeds
+ * FeedParserTest serves through {@link FixtureServer} and checks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedParserBenchmark {
+    // Set by the jmh block in build.gradle
+    static final Path FEEDS = Paths.get(System.getProperty("benchmark.feeds", "src/test/resources/feeds"));
+
+    private Map<String, String> payloads;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stdout = BenchmarkData.muteStdout();
+        // Keyed by URL like FeedCapture records them, the parser reads driver ids from the URLs
+        payloads = new LinkedHashMap<>();
+        for (String path : Files.readAllLines(FEEDS.resolve(FixtureServer.FEED_MANIFEST), StandardCharsets.UTF_8)) {
+            if (!path.isBlank()) {
+                payloads.put("http://localhost" + path.trim(),
+                        Files.readString(FEEDS.resolve(path.trim().substring(1)), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<Piloto> parse() {
+        return FeedParser.parse(payloads);
+    }
+}
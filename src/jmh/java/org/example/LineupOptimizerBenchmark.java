@@ -0,0 +1,51 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineupOptimizerBenchmark {
+    @Param({"synthetic-20x24", "synthetic-60x24"})
+    public String source;
+
+    @Param({"1", "10"})
+    public int lineups;
+
+    private List<Piloto> pilots;
+    private LineupOptimizer optimizer;
+    private LineupOptimizer.Constraints swaps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        PrintStream stdout = BenchmarkData.muteStdout();
+        pilots = BenchmarkData.load(source);
+        for (Piloto piloto : pilots) {
+            PriceCalc.processLastTwoEntries(piloto);
+        }
+        System.setOut(stdout);
+
+        optimizer = new LineupOptimizer(5, 60.0);
+        // A what-if from a team of the first five drivers that may change two of them
+        swaps = new LineupOptimizer.Constraints(Set.of(), Set.of(), Set.copyOf(pilots.subList(0, 5)), 2);
+    }
+
+    @Benchmark
+    public List<Lineup> unconstrained() {
+        return optimizer.best(pilots, LineupOptimizer.Constraints.none(), lineups);
+    }
+
+    @Benchmark
+    public List<Lineup> twoSwaps() {
+        return optimizer.best(pilots, swaps, lineups);
+    }
+}
@@ -0,0 +1,51 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NextRacePrinterBenchmark {
+    @Param({"pilots.dat", "synthetic-200x24"})
+    public String source;
+
+    private List<Piloto> pilots;
+    private List<Piloto> shuffled;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stdout = BenchmarkData.muteStdout();
+        pilots = BenchmarkData.load(source);
+        for (Piloto piloto : pilots) {
+            PriceCalc.processLastTwoEntries(piloto);
+        }
+        shuffled = new ArrayList<>(pilots);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        // The printer sorts the list in place, start every call from the original order
+        shuffled.clear();
+        shuffled.addAll(pilots);
+    }
+
+    @Benchmark
+    public void printRanking() {
+        NextRacePrinter.printPilotosOrderedByPointsToExcelent(shuffled);
+    }
+}
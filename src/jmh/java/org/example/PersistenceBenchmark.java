@@ -0,0 +1,98 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the formats behind DataManager.savePilots/loadPilots. Everything is written to a
+ * temporary directory, so running the benchmarks never touches the real data/ folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    @Param({"pilots.dat", "pilotsMonacoBUENA.dat", "pilotsTHIS.dat", "pilotsmonaco.dat",
+            "synthetic-20x24", "synthetic-20x120"})
+    public String source;
+
+    private List<Piloto> pilots;
+    private Path directory;
+    private Path snapshotFile;
+    private File legacyFile;
+    private SnapshotStore store;
+    private PrintStream stdout;
+    private int saves;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pilots = BenchmarkData.load(source);
+        directory = Files.createTempDirectory("f1-benchmark");
+        snapshotFile = directory.resolve("pilots.f1s");
+        legacyFile = directory.resolve("pilots.dat").toFile();
+        SnapshotCodec.write(pilots, snapshotFile);
+        writeLegacy();
+        store = new SnapshotStore(directory.resolve("store").toFile());
+        stdout = BenchmarkData.muteStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        SnapshotCodec.write(pilots, snapshotFile);
+    }
+
+    @Benchmark
+    public List<Piloto> loadSnapshot() throws IOException {
+        return SnapshotCodec.read(snapshotFile);
+    }
+
+    /**
+     * The Java serialization savePilots used before the snapshot format
+     */
+    @Benchmark
+    public void saveLegacy() throws IOException {
+        writeLegacy();
+    }
+
+    @Benchmark
+    public List<Piloto> loadLegacy() throws IOException {
+        return DataManager.loadLegacyPilots(legacyFile);
+    }
+
+    /**
+     * A save of a state that changed one value since the previous save, as savePilots does it now
+     */
+    @Benchmark
+    public int saveToStore() throws IOException {
+        pilots.get(0).setValue(10 + (saves++ % 2));
+        return store.commit(pilots, "benchmark");
+    }
+
+    @Benchmark
+    public List<Piloto> loadFromStore() {
+        return store.loadLatest();
+    }
+
+    private void writeLegacy() throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacyFile))) {
+            oos.writeObject(pilots);
+        }
+    }
+}
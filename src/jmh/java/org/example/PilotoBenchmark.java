@@ -0,0 +1,70 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PilotoBenchmark {
+    @Param({"pilots.dat", "synthetic-20x24"})
+    public String source;
+
+    @Param({"24"})
+    public int races;
+
+    @Param({"2", "12"})
+    public int window;
+
+    private List<Piloto> pilots;
+    private String[] circuitNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pilots = BenchmarkData.load(source);
+        circuitNames = new String[races];
+        for (int i = 0; i < races; i++) {
+            circuitNames[i] = "Race " + i;
+        }
+    }
+
+    @Benchmark
+    public Piloto addCircuitData() {
+        Piloto piloto = new Piloto("Driver");
+        for (int i = 0; i < races; i++) {
+            piloto.addCircuitData(circuitNames[i], 20 + i, 19.4, 0.1);
+        }
+        return piloto;
+    }
+
+    @Benchmark
+    public void toStringAll(Blackhole blackhole) {
+        for (Piloto piloto : pilots) {
+            blackhole.consume(piloto.toString());
+        }
+    }
+
+    @Benchmark
+    public void getDataAll(Blackhole blackhole) {
+        for (Piloto piloto : pilots) {
+            blackhole.consume(piloto.getData());
+        }
+    }
+
+    @Benchmark
+    public void windowStatsAll(Blackhole blackhole) {
+        for (Piloto piloto : pilots) {
+            RollingStats.Window last = piloto.getStats().last(window);
+            blackhole.consume(last.ppmSum());
+            blackhole.consume(last.ppmVariance());
+            blackhole.consume(last.ppmTrend());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceCalcBenchmark {
+    @Param({"pilots.dat", "synthetic-20x24", "synthetic-200x24"})
+    public String source;
+
+    private List<Piloto> pilots;
+    private PriceTable table;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pilots = BenchmarkData.load(source);
+        table = PriceCalc.buildTable(pilots);
+        stdout = BenchmarkData.muteStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void processLastTwoEntries() {
+        for (Piloto piloto : pilots) {
+            PriceCalc.processLastTwoEntries(piloto);
+        }
+    }
+
+    @Benchmark
+    public List<PriceResult> priceAll() {
+        return PriceCalc.priceAll(pilots);
+    }
+
+    /**
+     * A repeat analysis: every driver is unchanged since the first call, so only fingerprints are computed
+     */
+    @Benchmark
+    public List<PriceResult> priceAllCached() {
+        return PriceCache.priceAll(pilots);
+    }
+
+    @Benchmark
+    public PriceTable buildTable() {
+        return PriceCalc.buildTable(pilots);
+    }
+
+    /**
+     * Every driver at a few scores, read from a table built once
+     */
+    @Benchmark
+    public void whatIfLookups(Blackhole blackhole) {
+        for (int row = 0; row < table.size(); row++) {
+            for (int points = 0; points <= 30; points += 5) {
+                blackhole.consume(table.averagePpm(row, points));
+                blackhole.consume(table.band(row, points));
+            }
+        }
+    }
+
+    @Benchmark
+    public void computeThresholds(Blackhole blackhole) {
+        for (Piloto piloto : pilots) {
+            int last = piloto.getCircuitCount() - 1;
+            double ppm1 = piloto.getCircuitPoints(last - 1) / piloto.getRaceValue(last - 1);
+            double ppm2 = piloto.getCircuitPoints(last) / piloto.getRaceValue(last);
+            blackhole.consume(PriceCalc.computeThresholds(ppm1, ppm2, piloto.getValue()));
+        }
+    }
+
+    /**
+     * The string parsing PriceCalc did on every circuit before results were typed, now only
+     * used when reading old .dat files
+     */
+    @Benchmark
+    public void parseLegacyCircuitData(Blackhole blackhole) {
+        Piloto piloto = new Piloto("Legacy");
+        piloto.addLegacyCircuitData("Monaco", "45 pts | $31,0M | +0,3M");
+        piloto.addLegacyCircuitData("Italy", "31 pts | $30.7M | -0.3M");
+        piloto.addLegacyCircuitData("China", "41 pts");
+        blackhole.consume(piloto);
+    }
+}
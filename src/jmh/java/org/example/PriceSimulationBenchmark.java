@@ -0,0 +1,41 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceSimulationBenchmark {
+    @Param({"synthetic-20x24"})
+    public String source;
+
+    @Param({"1000000"})
+    public long trials;
+
+    private PriceSimulation simulation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        PrintStream stdout = BenchmarkData.muteStdout();
+        List<Piloto> pilots = BenchmarkData.load(source);
+        for (Piloto piloto : pilots) {
+            PriceCalc.processLastTwoEntries(piloto);
+        }
+        System.setOut(stdout);
+
+        simulation = new PriceSimulation(pilots, pilots.subList(0, 5));
+    }
+
+    @Benchmark
+    public PriceSimulation.Result simulate() {
+        return simulation.run(trials, 42);
+    }
+}
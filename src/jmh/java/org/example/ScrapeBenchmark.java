@@ -0,0 +1,92 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times whole scrapes against pages recorded with option 6 of Main and replayed by
+ * {@link FixtureServer}, so the numbers don't depend on the network or on the live data.
+ * Needs Edge installed and a recording in fixtures/: run Main, choose option 6 with the website
+ * reachable, and the page, popups and feeds are saved there. Without fixtures/stats.html the build
+ * leaves this benchmark out of {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScrapeBenchmark {
+    static final Path FIXTURES = Paths.get(System.getProperty("benchmark.fixtures", "fixtures"));
+
+    // Delay added to every response of the fixture server
+    @Param({"0", "100"})
+    public long latency;
+
+    @Param({"1", "4"})
+    public int sessions;
+
+    private FixtureServer server;
+    private StatScrapperPool pool;
+    private StatScrapper scraper;
+    private List<Piloto> scraped;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (!Files.isRegularFile(FIXTURES.resolve(FixtureServer.PAGE))) {
+            throw new IllegalStateException("No recording in " + FIXTURES.toAbsolutePath()
+                    + ", record one with option 6 of Main first");
+        }
+        server = new FixtureServer(FIXTURES, 0, latency, 0);
+        // Read by StatScrapper when it is first loaded, which only happens below in this fork
+        System.setProperty("scraper.url", server.getUrl());
+        System.setProperty("scraper.headless", "true");
+        stdout = BenchmarkData.muteStdout();
+
+        // Browser startup is not part of the measurement. The single session also runs the feed mode.
+        scraper = new StatScrapper();
+        if (sessions > 1) {
+            pool = new StatScrapperPool(sessions);
+        }
+        scraped = scrapeDom();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        scraper.close();
+        server.close();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public List<Piloto> scrapeDom() {
+        return pool != null ? pool.scrapeDriverStats() : scraper.scrapeDriverStats();
+    }
+
+    /**
+     * Option 2 when nothing changed since the last save, so every row is skipped
+     */
+    @Benchmark
+    public List<Piloto> updateUnchanged() {
+        return pool != null ? pool.updatePilotCircuits(scraped) : scraper.updatePilotCircuits(scraped);
+    }
+
+    /**
+     * The feed mode loads the page once, so it always runs on a single session
+     */
+    @Benchmark
+    public List<Piloto> scrapeFeeds() {
+        return scraper.scrapeDriverStatsFromFeeds();
+    }
+}
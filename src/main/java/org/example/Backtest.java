@@ -0,0 +1,216 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Checks how often the {@link PriceCalc} thresholds called the price change that really happened.
+ * <p>
+ * A snapshot only knows the value and trend of the last races before it was saved, so the snapshots
+ * are first merged into one timeline per driver. The scraper writes the value and trend of the moment
+ * onto the last two circuits, so only the last circuit of a snapshot holds the change that race caused:
+ * a race takes its value and trend from the snapshot it was the last circuit of, or failing that from
+ * the first snapshot that recorded one. Points always come from the latest snapshot. Then, for every race
+ * whose window of past races has values, the thresholds are computed the way PriceCalc would have
+ * before the race. The points the driver went on to score give the band reached, and the value
+ * change of that band is compared with the trend recorded for the race.
+ * <p>
+ * Drivers are replayed in parallel. A race counts as exact when the predicted change is the one
+ * recorded, and as the right direction when both went up, both went down or both stayed flat.
+ */
+public class Backtest {
+
+    /**
+     * Run the backtest
+     * @param snapshots The snapshots to merge, in any order
+     * @return The accuracy overall, per tier and per driver
+     */
+    public static Report run(List<DataManager.ArchivedSnapshot> snapshots) {
+        // Oldest data first: fewer races, then fewer known values, then saved earlier
+        List<DataManager.ArchivedSnapshot> ordered = new ArrayList<>(snapshots);
+        ordered.sort(Comparator.comparingInt((DataManager.ArchivedSnapshot s) -> races(s.pilots()))
+                .thenComparingInt(s -> valuedRaces(s.pilots()))
+                .thenComparing(DataManager.ArchivedSnapshot::saved));
+
+        Map<String, Timeline> timelines = new LinkedHashMap<>();
+        for (DataManager.ArchivedSnapshot snapshot : ordered) {
+            for (Piloto piloto : snapshot.pilots()) {
+                timelines.computeIfAbsent(piloto.getName(), Timeline::new).merge(piloto);
+            }
+        }
+
+        List<Tally> replayed = timelines.values().parallelStream().map(Timeline::replay).toList();
+
+        Tally total = new Tally("All drivers", false);
+        Tally tierA = new Tally("Tier A", false);
+        Tally tierB = new Tally("Tier B", false);
+        List<Score> drivers = new ArrayList<>();
+        int skipped = 0;
+        for (Tally driver : replayed) {
+            total.add(driver);
+            tierA.add(driver.tierA);
+            tierB.add(driver.tierB);
+            skipped += driver.skipped;
+            if (driver.races > 0) {
+                drivers.add(driver.score());
+            }
+        }
+        drivers.sort(Comparator.comparingDouble(Score::exactRate).reversed().thenComparing(Score::name));
+        return new Report(snapshots.size(), skipped, total.score(), List.of(tierA.score(), tierB.score()), drivers);
+    }
+
+    private static int races(List<Piloto> pilotos) {
+        int races = 0;
+        for (Piloto piloto : pilotos) {
+            races = Math.max(races, piloto.getCircuitCount());
+        }
+        return races;
+    }
+
+    private static int valuedRaces(List<Piloto> pilotos) {
+        int valued = 0;
+        for (Piloto piloto : pilotos) {
+            for (int i = 0; i < piloto.getCircuitCount(); i++) {
+                if (piloto.hasCircuitValue(i)) {
+                    valued++;
+                }
+            }
+        }
+        return valued;
+    }
+
+    /**
+     * The races of one driver gathered from every snapshot, in race order
+     */
+    private static class Timeline {
+        private final String name;
+        // Circuit name to points, value tenths, trend tenths and 1 once the value came from the
+        // snapshot the circuit was the last one of
+        private final LinkedHashMap<String, int[]> circuits = new LinkedHashMap<>();
+
+        Timeline(String name) {
+            this.name = name;
+        }
+
+        void merge(Piloto piloto) {
+            int last = piloto.getCircuitCount() - 1;
+            for (int i = 0; i <= last; i++) {
+                int[] circuit = circuits.computeIfAbsent(piloto.getCircuitName(i),
+                        k -> new int[]{0, Piloto.NO_VALUE, 0, 0});
+                circuit[0] = piloto.getCircuitPoints(i);
+                // Earlier circuits carry the change of a later race, so they never replace a known value
+                if (piloto.hasCircuitValue(i) && circuit[3] == 0
+                        && (i == last || circuit[1] == Piloto.NO_VALUE)) {
+                    circuit[1] = piloto.getCircuitValueTenths(i);
+                    circuit[2] = piloto.getCircuitTrendTenths(i);
+                    circuit[3] = i == last ? 1 : 0;
+                }
+            }
+        }
+
+        Tally replay() {
+            Piloto piloto = new Piloto(name);
+            for (Map.Entry<String, int[]> circuit : circuits.entrySet()) {
+                int[] result = circuit.getValue();
+                piloto.putCircuit(circuit.getKey(), result[0], result[1], result[2]);
+            }
+
+            Tally tally = new Tally(name, true);
+            RollingStats stats = piloto.getStats();
+            for (int race = 0; race < piloto.getCircuitCount(); race++) {
+                if (race < PriceCalc.WINDOW || !hasValues(piloto, race - PriceCalc.WINDOW, race + 1)) {
+                    tally.skipped++;
+                    continue;
+                }
+
+                // Priced the way PriceCalc would have before the race, at the value the driver had then
+                double value = piloto.getRaceValue(race);
+                PriceThresholds thresholds = PriceCalc.computeThresholdsOverWindow(
+                        stats.window(race - PriceCalc.WINDOW, race).ppmSum(), PriceCalc.WINDOW, value);
+                int band = PriceSimulation.outcome(thresholds.pointsToPoor(), thresholds.pointsToGood(),
+                        thresholds.pointsToExcelent(), piloto.getCircuitPoints(race));
+                int predicted = PriceSimulation.changeTenths(value, band);
+                int actual = piloto.getCircuitTrendTenths(race);
+
+                Tally tier = value >= PriceSimulation.TIER_A_VALUE ? tally.tierA : tally.tierB;
+                tier.record(predicted, actual);
+                tally.record(predicted, actual);
+            }
+            return tally;
+        }
+
+        private static boolean hasValues(Piloto piloto, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!piloto.hasCircuitValue(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Counts while replaying, turned into a {@link Score} at the end
+     */
+    private static class Tally {
+        private final String name;
+        private int races;
+        private int exact;
+        private int direction;
+        private int skipped;
+        // The same races split by tier, only kept for drivers
+        private final Tally tierA;
+        private final Tally tierB;
+
+        Tally(String name, boolean byTier) {
+            this.name = name;
+            this.tierA = byTier ? new Tally("Tier A", false) : null;
+            this.tierB = byTier ? new Tally("Tier B", false) : null;
+        }
+
+        void record(int predicted, int actual) {
+            races++;
+            if (predicted == actual) {
+                exact++;
+            }
+            if (Integer.signum(predicted) == Integer.signum(actual)) {
+                direction++;
+            }
+        }
+
+        void add(Tally other) {
+            races += other.races;
+            exact += other.exact;
+            direction += other.direction;
+        }
+
+        Score score() {
+            return new Score(name, races, exact, direction);
+        }
+    }
+
+    /**
+     * @param name The driver or group
+     * @param races The races that could be checked
+     * @param exact Races where the predicted value change was the one recorded
+     * @param direction Races where the value moved the predicted way
+     */
+    public record Score(String name, int races, int exact, int direction) {
+        public double exactRate() {
+            return races == 0 ? 0 : (double) exact / races;
+        }
+
+        public double directionRate() {
+            return races == 0 ? 0 : (double) direction / races;
+        }
+    }
+
+    /**
+     * @param snapshots The number of snapshots merged
+     * @param skipped Races that could not be checked because a value was missing
+     * @param total The score over every checked race
+     * @param tiers The score of tier A and tier B races, by the value going into the race
+     * @param drivers The score of every driver with at least one checked race, best first
+     */
+    public record Report(int snapshots, int skipped, Score total, List<Score> tiers, List<Score> drivers) {
+    }
+}
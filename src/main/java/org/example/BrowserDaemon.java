@@ -0,0 +1,47 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps warm Edge browsers open between runs, so a run doesn't pay for starting the browser,
+ * loading its profile and rendering the statistics page the first time.
+ * <p>
+ * Start it once with <code>java -cp ... org.example.BrowserDaemon 9222 4</code>, then run Main with
+ * <code>-Dscraper.attach=localhost:9222</code>. Each browser listens on its own DevTools port, starting
+ * at the given one, so a pool of up to that many sessions gets one browser per session.
+ * The daemon uses the same scraper.* options as Main (profile, headless, blocked resources).
+ */
+public class BrowserDaemon {
+
+    /**
+     * Start the browsers and keep them open until the process is stopped
+     * @param args The first DevTools port (default 9222) and the number of browsers (default 1)
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9222;
+        int browsers = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        List<StatScrapper> sessions = new ArrayList<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Closing " + sessions.size() + " browsers...");
+            for (StatScrapper session : sessions) {
+                session.close();
+            }
+        }));
+
+        for (int i = 0; i < browsers; i++) {
+            // A single browser uses the default profile, like a single session does
+            int session = browsers > 1 ? i + 1 : 0;
+            StatScrapper scraper = new StatScrapper(session, port + i);
+            sessions.add(scraper);
+
+            // Render the page once, so the first attached run finds it ready
+            scraper.openDriverList();
+            System.out.println("Browser " + (i + 1) + " ready on port " + (port + i));
+        }
+
+        System.out.println("Run the scraper with -Dscraper.attach=localhost:" + port + ", press Ctrl+C to stop");
+        Thread.currentThread().join();
+    }
+}
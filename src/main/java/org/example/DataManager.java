@@ -1,12 +1,40 @@
 package org.example;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataManager {
     private static final String SAVE_DIRECTORY = "data";
-    private static final String PILOTS_FILE = "pilots.dat";
+    private static final String SNAPSHOT_EXTENSION = ".f1s";
+    private static final String LEGACY_EXTENSION = ".dat";
+    private static final String PILOTS_FILE = "pilots" + SNAPSHOT_EXTENSION;
+    // Java-serialized file written by older versions, imported on the first load
+    private static final String LEGACY_PILOTS_FILE = "pilots" + LEGACY_EXTENSION;
+    // Journaled history of every savePilots call, see SnapshotStore
+    private static final String STORE_DIRECTORY = "store";
+    // Pilots of a scrape that has not finished yet, one file each plus an index by list row
+    private static final String CHECKPOINT_DIRECTORY = "checkpoint";
+    private static final String CHECKPOINT_INDEX = "index.properties";
+
+    private static SnapshotStore store;
+    // Snapshots parsed by loadArchive, by source, dropped as soon as the source changes on disk
+    private static final Map<File, CachedArchive> ARCHIVE_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * A saved list of pilots from the snapshot store or from a file in the save directory
+     * @param name The label of the save or the file name
+     * @param saved When it was saved
+     * @param pilots The pilots, shared with the cache of {@link #loadArchive()} and not to be changed
+     */
+    public record ArchivedSnapshot(String name, Instant saved, List<Piloto> pilots) {
+    }
+
+    private record CachedArchive(long length, long modified, List<ArchivedSnapshot> snapshots) {
+    }
 
     // Ensure the save directory exists
     static {
@@ -17,17 +45,57 @@ public class DataManager {
     }
 
     /**
-     * Save a list of pilots to a file
+     * Open the snapshot store on first use
+     * @return The store, or null if it cannot be opened
+     */
+    private static synchronized SnapshotStore store() {
+        if (store == null) {
+            try {
+                store = new SnapshotStore(new File(SAVE_DIRECTORY, STORE_DIRECTORY));
+            } catch (IOException e) {
+                System.err.println("Error opening snapshot store: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Save a list of pilots. Only the changes since the previous save are appended to the
+     * snapshot store, labelled with the last race in the data.
      * @param pilots The list of pilots to save
      * @return true if saved successfully, false otherwise
      */
     public static boolean savePilots(List<Piloto> pilots) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(SAVE_DIRECTORY + File.separator + PILOTS_FILE))) {
-            oos.writeObject(pilots);
+        SnapshotStore snapshotStore = store();
+        if (snapshotStore == null) {
+            return savePilotsFile(pilots);
+        }
+
+        try {
+            String label = raceLabel(pilots);
+            int records = snapshotStore.commit(pilots, label);
+            System.out.println("Successfully saved " + pilots.size() + " pilots as snapshot '" + label
+                    + "' (" + records + " journal records)");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error saving pilots: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Save a list of pilots as one full snapshot file
+     * @param pilots The list of pilots to save
+     * @return true if saved successfully, false otherwise
+     */
+    private static boolean savePilotsFile(List<Piloto> pilots) {
+        try {
+            SnapshotCodec.write(pilots, new File(SAVE_DIRECTORY, PILOTS_FILE).toPath());
             System.out.println("Successfully saved " + pilots.size() + " pilots to file");
             return true;
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("Error saving pilots: " + e.getMessage());
             e.printStackTrace();
             return false;
@@ -35,23 +103,189 @@ public class DataManager {
     }
 
     /**
-     * Load the list of pilots from a file
-     * @return The list of pilots, or an empty list if the file doesn't exist or an error occurs
+     * Load the list of pilots from the last save
+     * @return The list of pilots, or an empty list if nothing was saved or an error occurs
      */
-    @SuppressWarnings("unchecked")
     public static List<Piloto> loadPilots() {
-        File file = new File(SAVE_DIRECTORY + File.separator + PILOTS_FILE);
+        SnapshotStore snapshotStore = store();
+        if (snapshotStore != null && !snapshotStore.isEmpty()) {
+            List<Piloto> pilots = snapshotStore.loadLatest();
+            System.out.println("Successfully loaded " + pilots.size() + " pilots from the snapshot store");
+            return pilots;
+        }
+
+        // Nothing in the store yet: start its history from the last full snapshot file
+        List<Piloto> pilots = loadPilotsFile();
+        if (snapshotStore != null && !pilots.isEmpty()) {
+            try {
+                snapshotStore.commit(pilots, raceLabel(pilots));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error seeding snapshot store: " + e.getMessage());
+            }
+        }
+        return pilots;
+    }
+
+    /**
+     * Load the most recent save for a race
+     * @param label The label of the save, usually the last race in the data
+     * @return The list of pilots, or an empty list if there is no such save
+     */
+    public static List<Piloto> loadPilotsByLabel(String label) {
+        SnapshotStore snapshotStore = store();
+        try {
+            List<Piloto> pilots = snapshotStore == null ? null : snapshotStore.loadByLabel(label);
+            if (pilots == null) {
+                System.out.println("No snapshot found for: " + label);
+                return new ArrayList<>();
+            }
+            System.out.println("Successfully loaded " + pilots.size() + " pilots from snapshot '" + label + "'");
+            return pilots;
+        } catch (IOException e) {
+            System.err.println("Error loading snapshot " + label + ": " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Load the pilots as they were saved at a given time
+     * @param timestamp The moment to go back to
+     * @return The list of pilots of the last save at or before that time, or an empty list
+     */
+    public static List<Piloto> loadPilotsAt(Instant timestamp) {
+        SnapshotStore snapshotStore = store();
+        try {
+            List<Piloto> pilots = snapshotStore == null ? null : snapshotStore.loadAt(timestamp);
+            if (pilots == null) {
+                System.out.println("No snapshot saved at or before " + timestamp);
+                return new ArrayList<>();
+            }
+            System.out.println("Successfully loaded " + pilots.size() + " pilots as of " + timestamp);
+            return pilots;
+        } catch (IOException e) {
+            System.err.println("Error loading snapshot at " + timestamp + ": " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return Every save in the snapshot store, oldest first
+     */
+    public static List<SnapshotStore.Commit> listSnapshots() {
+        SnapshotStore snapshotStore = store();
+        return snapshotStore == null ? new ArrayList<>() : snapshotStore.listCommits();
+    }
+
+    /**
+     * Load every snapshot kept in the save directory: each save of the snapshot store, the .f1s
+     * files and the .dat files that were never converted. The sources are read in parallel and
+     * kept in memory, so loading again only reads what changed on disk.
+     * @return Every snapshot found, in no particular order
+     */
+    public static List<ArchivedSnapshot> loadArchive() {
+        List<File> sources = new ArrayList<>();
+        File storeDirectory = new File(SAVE_DIRECTORY, STORE_DIRECTORY);
+        if (storeDirectory.isDirectory()) {
+            sources.add(storeDirectory);
+        }
+        File[] files = new File(SAVE_DIRECTORY).listFiles((dir, name) -> name.endsWith(SNAPSHOT_EXTENSION)
+                || (name.endsWith(LEGACY_EXTENSION) && !new File(dir, name.substring(0,
+                        name.length() - LEGACY_EXTENSION.length()) + SNAPSHOT_EXTENSION).exists()));
+        if (files != null) {
+            sources.addAll(Arrays.asList(files));
+        }
+
+        List<ArchivedSnapshot> snapshots = new ArrayList<>();
+        sources.parallelStream().map(DataManager::loadArchived).toList().forEach(snapshots::addAll);
+        return snapshots;
+    }
+
+    private static List<ArchivedSnapshot> loadArchived(File source) {
+        // A directory changes with any of its files, so it is stamped with their total size and latest date
+        long length = source.length();
+        long modified = source.lastModified();
+        File[] children = source.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                length += child.length();
+                modified = Math.max(modified, child.lastModified());
+            }
+        }
+
+        CachedArchive cached = ARCHIVE_CACHE.get(source);
+        if (cached != null && cached.length() == length && cached.modified() == modified) {
+            return cached.snapshots();
+        }
+
+        List<ArchivedSnapshot> snapshots = new ArrayList<>();
+        try {
+            if (source.isDirectory()) {
+                SnapshotStore snapshotStore = store();
+                if (snapshotStore == null) {
+                    return snapshots;
+                }
+                for (Map.Entry<SnapshotStore.Commit, List<Piloto>> save : snapshotStore.loadEverySave().entrySet()) {
+                    snapshots.add(new ArchivedSnapshot(save.getKey().label(), save.getKey().timestamp(), save.getValue()));
+                }
+            } else {
+                List<Piloto> pilots = source.getName().endsWith(LEGACY_EXTENSION)
+                        ? loadLegacyPilots(source) : SnapshotCodec.read(source.toPath());
+                snapshots.add(new ArchivedSnapshot(source.getName(), Instant.ofEpochMilli(modified), pilots));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading snapshot " + source.getName() + ": " + e.getMessage());
+            return snapshots;
+        }
+
+        ARCHIVE_CACHE.put(source, new CachedArchive(length, modified, List.copyOf(snapshots)));
+        return snapshots;
+    }
+
+    /**
+     * Name a save after the race most pilots have as their last circuit
+     * @param pilots The pilots being saved
+     * @return The race name, or "snapshot" if there is no circuit data
+     */
+    static String raceLabel(List<Piloto> pilots) {
+        Map<String, Integer> counts = new HashMap<>();
+        String label = "snapshot";
+        int best = 0;
+        for (Piloto piloto : pilots) {
+            int count = piloto.getCircuitCount();
+            if (count > 0) {
+                String circuit = piloto.getCircuitName(count - 1);
+                int seen = counts.merge(circuit, 1, Integer::sum);
+                if (seen > best) {
+                    best = seen;
+                    label = circuit;
+                }
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Load the list of pilots from the full snapshot file, importing the legacy file if needed
+     * @return The list of pilots, or an empty list if the file doesn't exist or an error occurs
+     */
+    private static List<Piloto> loadPilotsFile() {
+        File file = new File(SAVE_DIRECTORY, PILOTS_FILE);
         if (!file.exists()) {
+            File legacyFile = new File(SAVE_DIRECTORY, LEGACY_PILOTS_FILE);
+            if (legacyFile.exists() && importLegacySnapshot(legacyFile)) {
+                return loadPilotsFile();
+            }
             System.out.println("No saved pilots file found");
             return new ArrayList<>();
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(file))) {
-            List<Piloto> pilots = (List<Piloto>) ois.readObject();
+        try {
+            List<Piloto> pilots = SnapshotCodec.read(file.toPath());
             System.out.println("Successfully loaded " + pilots.size() + " pilots from file");
             return pilots;
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("Error loading pilots: " + e.getMessage());
             e.printStackTrace();
             return new ArrayList<>();
@@ -64,13 +298,16 @@ public class DataManager {
      * @return true if saved successfully, false otherwise
      */
     public static boolean savePilot(Piloto pilot) {
-        String fileName = pilot.getName().replaceAll("[^a-zA-Z0-9]", "_") + ".dat";
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(SAVE_DIRECTORY + File.separator + fileName))) {
-            oos.writeObject(pilot);
+        return savePilot(pilot, new File(SAVE_DIRECTORY));
+    }
+
+    private static boolean savePilot(Piloto pilot, File directory) {
+        String fileName = pilotFileName(pilot.getName());
+        try {
+            SnapshotCodec.write(Collections.singletonList(pilot), new File(directory, fileName).toPath());
             System.out.println("Successfully saved pilot " + pilot.getName() + " to file");
             return true;
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("Error saving pilot " + pilot.getName() + ": " + e.getMessage());
             e.printStackTrace();
             return false;
@@ -83,22 +320,171 @@ public class DataManager {
      * @return The pilot, or null if the file doesn't exist or an error occurs
      */
     public static Piloto loadPilot(String pilotName) {
-        String fileName = pilotName.replaceAll("[^a-zA-Z0-9]", "_") + ".dat";
-        File file = new File(SAVE_DIRECTORY + File.separator + fileName);
+        return loadPilot(pilotName, new File(SAVE_DIRECTORY, pilotFileName(pilotName)));
+    }
+
+    private static Piloto loadPilot(String pilotName, File file) {
         if (!file.exists()) {
             System.out.println("No saved file found for pilot: " + pilotName);
             return null;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(file))) {
-            Piloto pilot = (Piloto) ois.readObject();
+        try {
+            List<Piloto> pilots = SnapshotCodec.read(file.toPath());
+            if (pilots.isEmpty()) {
+                System.out.println("Saved file for pilot " + pilotName + " is empty");
+                return null;
+            }
+            Piloto pilot = pilots.get(0);
             System.out.println("Successfully loaded pilot " + pilot.getName() + " from file");
             return pilot;
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.err.println("Error loading pilot " + pilotName + ": " + e.getMessage());
             e.printStackTrace();
             return null;
         }
     }
-}
\ No newline at end of file
+
+    private static String pilotFileName(String pilotName) {
+        return pilotName.replaceAll("[^a-zA-Z0-9]", "_") + SNAPSHOT_EXTENSION;
+    }
+
+    /**
+     * Add a scraped pilot to the checkpoint of the running scrape. Safe to call from several sessions at once.
+     * @param row The row of the driver in the website list
+     * @param pilot The scraped pilot
+     * @return true if saved successfully, false otherwise
+     */
+    public static synchronized boolean checkpointPilot(int row, Piloto pilot) {
+        File directory = new File(SAVE_DIRECTORY, CHECKPOINT_DIRECTORY);
+        directory.mkdirs();
+        if (!savePilot(pilot, directory)) {
+            return false;
+        }
+
+        Properties index = loadCheckpointIndex(directory);
+        index.setProperty(Integer.toString(row), pilotFileName(pilot.getName()));
+
+        // Replace the index in one step, so a crash never leaves it half written
+        File indexFile = new File(directory, CHECKPOINT_INDEX);
+        File tempFile = new File(directory, CHECKPOINT_INDEX + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                index.store(out, "Scraped pilots by list row");
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving checkpoint index: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Load the pilots saved by a scrape that did not finish
+     * @return The pilots by list row, empty if there is no checkpoint
+     */
+    public static synchronized Map<Integer, Piloto> loadCheckpoint() {
+        File directory = new File(SAVE_DIRECTORY, CHECKPOINT_DIRECTORY);
+        Map<Integer, Piloto> pilots = new TreeMap<>();
+        for (Map.Entry<Object, Object> entry : loadCheckpointIndex(directory).entrySet()) {
+            try {
+                int row = Integer.parseInt((String) entry.getKey());
+                Piloto pilot = loadPilot((String) entry.getValue(), new File(directory, (String) entry.getValue()));
+                if (pilot != null) {
+                    pilots.put(row, pilot);
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Skipping bad checkpoint entry: " + entry.getKey());
+            }
+        }
+        return pilots;
+    }
+
+    /**
+     * Delete the checkpoint once a scrape has finished
+     */
+    public static synchronized void clearCheckpoint() {
+        File[] files = new File(SAVE_DIRECTORY, CHECKPOINT_DIRECTORY).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                // A checkpoint left behind would be resumed by the next scrape
+                if (!file.delete() && file.exists()) {
+                    System.out.println("Could not delete checkpoint file: " + file);
+                }
+            }
+        }
+    }
+
+    private static Properties loadCheckpointIndex(File directory) {
+        Properties index = new Properties();
+        File indexFile = new File(directory, CHECKPOINT_INDEX);
+        if (indexFile.exists()) {
+            try (InputStream in = new FileInputStream(indexFile)) {
+                index.load(in);
+            } catch (IOException e) {
+                System.err.println("Error reading checkpoint index: " + e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Load a list of pilots from a Java-serialized file written by older versions
+     * @param file The legacy .dat file
+     * @return The list of pilots
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Piloto> loadLegacyPilots(File file) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            return (List<Piloto>) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a saved pilots list: " + file, e);
+        }
+    }
+
+    /**
+     * Convert a legacy .dat file into a snapshot with the same name and the .f1s extension.
+     * The legacy file is left in place.
+     * @param legacyFile The legacy .dat file
+     * @return true if converted successfully, false otherwise
+     */
+    public static boolean importLegacySnapshot(File legacyFile) {
+        String name = legacyFile.getName();
+        String baseName = name.endsWith(LEGACY_EXTENSION)
+                ? name.substring(0, name.length() - LEGACY_EXTENSION.length()) : name;
+        File target = new File(legacyFile.getParentFile(), baseName + SNAPSHOT_EXTENSION);
+
+        try {
+            List<Piloto> pilots = loadLegacyPilots(legacyFile);
+            SnapshotCodec.write(pilots, target.toPath());
+            System.out.println("Imported " + pilots.size() + " pilots from " + legacyFile.getName()
+                    + " into " + target.getName() + " (" + legacyFile.length() + " -> " + target.length() + " bytes)");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error importing " + legacyFile.getName() + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Convert every legacy .dat file in the save directory
+     * @return The number of files converted
+     */
+    public static int importLegacySnapshots() {
+        File[] legacyFiles = new File(SAVE_DIRECTORY).listFiles((dir, name) -> name.endsWith(LEGACY_EXTENSION));
+        int imported = 0;
+        if (legacyFiles != null) {
+            for (File legacyFile : legacyFiles) {
+                if (importLegacySnapshot(legacyFile)) {
+                    imported++;
+                }
+            }
+        }
+        return imported;
+    }
+}
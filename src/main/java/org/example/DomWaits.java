@@ -0,0 +1,116 @@
+package org.example;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+
+/**
+ * Waits that are resolved by the page itself. Each wait is one async script that installs a
+ * MutationObserver and calls back as soon as the DOM reaches the expected state, instead of
+ * sleeping for a fixed time or polling from Java every 500 ms like WebDriverWait does.
+ */
+public class DomWaits {
+    // Every script gets its own arguments first, then the timeout, then Selenium's callback
+    private static final String PRELUDE =
+            "var args = arguments, done = args[args.length - 1], timeout = args[args.length - 2];" +
+            "function visible(el) { return !!el && (el.offsetParent !== null || el.getClientRects().length > 0); }" +
+            "function observe(check, then) {" +
+            "  if (check()) { then(true); return; }" +
+            "  var finished = false;" +
+            "  var observer = new MutationObserver(function () {" +
+            "    if (!finished && check()) { finished = true; observer.disconnect(); then(true); }" +
+            "  });" +
+            "  observer.observe(document.documentElement, {childList: true, subtree: true, attributes: true});" +
+            "  setTimeout(function () {" +
+            "    if (!finished) { finished = true; observer.disconnect(); then(check()); }" +
+            "  }, timeout);" +
+            "}";
+
+    private final WebDriver driver;
+    private final long timeoutMillis;
+
+    /**
+     * @param driver The driver to run the waits on
+     * @param timeout The longest any single wait may take
+     */
+    public DomWaits(WebDriver driver, Duration timeout) {
+        this.driver = driver;
+        this.timeoutMillis = timeout.toMillis();
+        // The script itself must be allowed to outlive the in-page timeout
+        driver.manage().timeouts().scriptTimeout(timeout.plusSeconds(5));
+    }
+
+    /**
+     * Wait until an element matching the selector is visible
+     * @param cssSelector The element to wait for
+     */
+    public void awaitVisible(String cssSelector) {
+        run("var selector = args[0];" +
+            "observe(function () { return visible(document.querySelector(selector)); }, done);",
+                "visibility of " + cssSelector, cssSelector);
+    }
+
+    /**
+     * Wait until an element matching the selector is in the DOM, visible or not
+     * @param cssSelector The element to wait for
+     */
+    public void awaitPresent(String cssSelector) {
+        run("var selector = args[0];" +
+            "observe(function () { return document.querySelector(selector) !== null; }, done);",
+                "presence of " + cssSelector, cssSelector);
+    }
+
+    /**
+     * Wait until no element matching the selector is visible
+     * @param cssSelector The element to wait for
+     */
+    public void awaitGone(String cssSelector) {
+        run("var selector = args[0];" +
+            "observe(function () { return !visible(document.querySelector(selector)); }, done);",
+                "invisibility of " + cssSelector, cssSelector);
+    }
+
+    /**
+     * Wait until the element matching the selector exists and its subtree has stopped changing
+     * for the given quiet period, e.g. a list that is rendered in several batches
+     * @param cssSelector The element to wait for
+     * @param quietMillis How long the subtree must stay unchanged
+     */
+    public void awaitStable(String cssSelector, long quietMillis) {
+        run("var selector = args[0], quiet = args[1], deadline = Date.now() + timeout;" +
+            "observe(function () { return document.querySelector(selector) !== null; }, function (found) {" +
+            "  if (!found) { done(false); return; }" +
+            "  var timer, cap, observer = new MutationObserver(arm);" +
+            "  function settle() { observer.disconnect(); clearTimeout(timer); clearTimeout(cap); done(true); }" +
+            "  function arm() { clearTimeout(timer); timer = setTimeout(settle, quiet); }" +
+            "  observer.observe(document.querySelector(selector), {childList: true, subtree: true, characterData: true});" +
+            "  arm();" +
+            "  cap = setTimeout(settle, Math.max(0, deadline - Date.now()));" +
+            "});",
+                "stable content of " + cssSelector, cssSelector, quietMillis);
+    }
+
+    /**
+     * Scroll an element to the middle of the viewport and return once the browser has painted it there
+     * @param element The element to scroll to
+     */
+    public void scrollIntoView(WebElement element) {
+        run("args[0].scrollIntoView({block: 'center'});" +
+            "requestAnimationFrame(function () { requestAnimationFrame(function () { done(true); }); });",
+                "scroll", element);
+    }
+
+    private void run(String script, String description, Object... args) {
+        Object[] allArgs = new Object[args.length + 1];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        allArgs[args.length] = timeoutMillis;
+
+        Object result = ((JavascriptExecutor) driver).executeAsyncScript(PRELUDE + script, allArgs);
+        if (!Boolean.TRUE.equals(result)) {
+            throw new TimeoutException("Timed out after " + timeoutMillis + " ms waiting for " + description);
+        }
+    }
+}
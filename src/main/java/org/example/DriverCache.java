@@ -0,0 +1,115 @@
+package org.example;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.*;
+import java.util.Properties;
+
+/**
+ * Remembers where WebDriverManager put msedgedriver, so later runs only check that the file is
+ * still there instead of resolving versions (and possibly downloading) before every scrape.
+ * Works offline once the driver has been resolved one time. When Edge updates itself and the
+ * cached driver no longer matches, {@link #refreshAfterFailure()} resolves it again.
+ */
+public class DriverCache {
+    private static final File CACHE_FILE = new File("data", "edgedriver.properties");
+    private static final String DRIVER_PROPERTY = "webdriver.edge.driver";
+
+    private static boolean ready;
+    private static boolean resolvedThisRun;
+
+    /**
+     * Point Selenium at the Edge driver binary, resolving it only if the cached one is missing.
+     * Sessions of a pool call this at the same time, the work is done once per process.
+     */
+    public static synchronized void setup() {
+        if (ready) {
+            return;
+        }
+
+        // A driver given on the command line always wins
+        String explicit = System.getProperty(DRIVER_PROPERTY);
+        if (explicit != null && new File(explicit).isFile()) {
+            System.out.println("Using Edge driver from -D" + DRIVER_PROPERTY + ": " + explicit);
+            ready = true;
+            return;
+        }
+
+        Properties cached = load();
+        String path = cached.getProperty("path");
+        if (path != null && isValid(new File(path), cached)) {
+            System.setProperty(DRIVER_PROPERTY, path);
+            System.out.println("Using cached Edge driver " + cached.getProperty("version") + " at " + path);
+            ready = true;
+            return;
+        }
+
+        resolve();
+    }
+
+    /**
+     * Resolve the driver again after the browser refused to start with the cached one
+     * @return true if a new driver was resolved and starting the browser is worth another try
+     */
+    public static synchronized boolean refreshAfterFailure() {
+        if (resolvedThisRun) {
+            return false;
+        }
+        System.out.println("The cached Edge driver did not start the browser, resolving it again...");
+        return resolve();
+    }
+
+    private static boolean resolve() {
+        resolvedThisRun = true;
+        ready = true;
+        try {
+            WebDriverManager manager = WebDriverManager.edgedriver();
+            manager.setup();
+
+            File driver = new File(manager.getDownloadedDriverPath());
+            Properties properties = new Properties();
+            properties.setProperty("path", driver.getAbsolutePath());
+            properties.setProperty("version", String.valueOf(manager.getDownloadedDriverVersion()));
+            properties.setProperty("size", Long.toString(driver.length()));
+            properties.setProperty("modified", Long.toString(driver.lastModified()));
+            save(properties);
+
+            System.out.println("Resolved Edge driver " + properties.getProperty("version") + " at " + driver);
+            return true;
+        } catch (RuntimeException e) {
+            // Offline with nothing cached: let Selenium look for msedgedriver on the PATH
+            System.err.println("Could not resolve the Edge driver: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * A cheap check that the file is the one that was cached: present, executable, same size and date
+     */
+    private static boolean isValid(File driver, Properties cached) {
+        return driver.isFile() && driver.canExecute()
+                && Long.toString(driver.length()).equals(cached.getProperty("size"))
+                && Long.toString(driver.lastModified()).equals(cached.getProperty("modified"));
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        if (CACHE_FILE.exists()) {
+            try (InputStream in = new FileInputStream(CACHE_FILE)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Error reading driver cache: " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    private static void save(Properties properties) {
+        CACHE_FILE.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(CACHE_FILE)) {
+            properties.store(out, "Edge driver resolved by WebDriverManager");
+        } catch (IOException e) {
+            System.err.println("Error saving driver cache: " + e.getMessage());
+        }
+    }
+}
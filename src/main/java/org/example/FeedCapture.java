@@ -0,0 +1,81 @@
+package org.example;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.NetworkInterceptor;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.Filter;
+import org.openqa.selenium.remote.http.HttpResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the JSON feeds the statistics page loads, the responses whose URL contains the feed path,
+ * using the DevTools Fetch domain through Selenium's {@link NetworkInterceptor}.
+ */
+public class FeedCapture implements AutoCloseable {
+    // Responses whose URL contains this fragment are recorded, e.g. -Dscraper.feed.path=/feeds/
+    private static final String FEED_PATH = System.getProperty("scraper.feed.path", "/feeds/");
+    // Also record any other JSON response, for when the feeds moved. Off by default because
+    // unrelated JSON (analytics, config) can look like driver records to FeedParser.
+    private static final boolean ANY_JSON = Boolean.getBoolean("scraper.feed.anyJson");
+
+    private final Map<String, String> responses = new LinkedHashMap<>();
+    private NetworkInterceptor interceptor;
+
+    /**
+     * Start recording on the given driver. Must be called before the page is loaded.
+     * @param driver A driver that supports DevTools (Edge or Chrome)
+     */
+    public void start(WebDriver driver) {
+        interceptor = new NetworkInterceptor(driver, (Filter) next -> request -> {
+            HttpResponse response = next.execute(request);
+            if (isFeedResponse(request.getUri(), response)) {
+                // Read the body once and put it back so the page still receives it
+                byte[] body = Contents.bytes(response.getContent());
+                response.setContent(Contents.bytes(body));
+                record(request.getUri(), new String(body, response.getContentEncoding()));
+            }
+            return response;
+        });
+        System.out.println("Recording JSON responses matching: " + FEED_PATH + (ANY_JSON ? " and any other JSON" : ""));
+    }
+
+    private boolean isFeedResponse(String uri, HttpResponse response) {
+        if (uri == null || !response.isSuccessful()) {
+            return false;
+        }
+        if (uri.contains(FEED_PATH)) {
+            return true;
+        }
+        String contentType = response.getHeader("Content-Type");
+        return ANY_JSON && contentType != null && contentType.contains("json");
+    }
+
+    /**
+     * Add a payload to the recording. Also used to add feeds fetched outside of the interceptor.
+     * @param uri The URL the payload was loaded from
+     * @param body The JSON text
+     */
+    synchronized void record(String uri, String body) {
+        responses.put(uri, body);
+    }
+
+    /**
+     * @return A copy of the recorded payloads, by URL in the order they arrived
+     */
+    public synchronized Map<String, String> getResponses() {
+        return new LinkedHashMap<>(responses);
+    }
+
+    /**
+     * Stop intercepting network traffic
+     */
+    @Override
+    public void close() {
+        if (interceptor != null) {
+            interceptor.close();
+            interceptor = null;
+        }
+    }
+}
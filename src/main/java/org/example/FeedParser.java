@@ -0,0 +1,240 @@
+package org.example;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds Piloto objects from the JSON feeds recorded by {@link FeedCapture}.
+ * The feeds are matched by field name rather than by a fixed schema, so the candidate
+ * names below are the only place to touch if the fantasy site renames a field.
+ */
+public class FeedParser {
+    private static final String[] ID_KEYS = {"PlayerId", "PlayerID", "Id"};
+    private static final String[] NAME_KEYS = {"FUllName", "FullName", "PlayerName", "DisplayName", "Name"};
+    private static final String[] TEAM_KEYS = {"TeamName", "Team"};
+    private static final String[] VALUE_KEYS = {"Value", "PlayerValue", "Price"};
+    private static final String[] OLD_VALUE_KEYS = {"OldPlayerValue", "OldValue", "PreviousValue"};
+    private static final String[] TREND_KEYS = {"ValueChange", "PriceChange", "Trend"};
+    private static final String[] CIRCUIT_KEYS = {"MeetingName", "CircuitName", "CountryName", "RaceName", "GamedayName"};
+    private static final String[] POINTS_KEYS = {"TotalPoints", "PlayerPoints", "Points", "Pts"};
+
+    // Numeric token at the end of a feed URL, e.g. ".../playerstats_12.json"
+    private static final Pattern URL_ID_PATTERN = Pattern.compile("[_/](\\d+)(?:_[a-zA-Z]+)?\\.json");
+
+    private static final Json JSON = new Json();
+
+    /**
+     * Build the list of pilots from the recorded payloads
+     * @param payloads JSON text by URL, as returned by {@link FeedCapture#getResponses()}
+     * @return List of Piloto objects in the order the drivers appear in the feeds
+     */
+    public static List<Piloto> parse(Map<String, String> payloads) {
+        Map<String, Object> documents = parseAll(payloads);
+
+        Map<String, Map<String, Object>> players = findPlayers(documents.values());
+        System.out.println("Found " + players.size() + " drivers in " + documents.size() + " feeds");
+
+        List<Piloto> pilotos = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> player : players.entrySet()) {
+            Piloto piloto = buildPiloto(player.getKey(), player.getValue(), documents);
+            if (piloto != null) {
+                pilotos.add(piloto);
+            }
+        }
+        return pilotos;
+    }
+
+    /**
+     * Find the ids of the drivers that have no circuit results in the recorded payloads
+     * @param payloads JSON text by URL
+     * @return The player ids whose stats feed still has to be fetched
+     */
+    public static Set<String> playersWithoutResults(Map<String, String> payloads) {
+        Map<String, Object> documents = parseAll(payloads);
+        Set<String> missing = new LinkedHashSet<>();
+        for (Map.Entry<String, Map<String, Object>> player : findPlayers(documents.values()).entrySet()) {
+            if (findResults(player.getKey(), player.getValue(), documents).isEmpty()) {
+                missing.add(player.getKey());
+            }
+        }
+        return missing;
+    }
+
+    private static Map<String, Object> parseAll(Map<String, String> payloads) {
+        Map<String, Object> documents = new LinkedHashMap<>();
+        for (Map.Entry<String, String> payload : payloads.entrySet()) {
+            try {
+                documents.put(payload.getKey(), JSON.toType(payload.getValue(), Json.OBJECT_TYPE));
+            } catch (JsonException e) {
+                System.out.println("Skipping feed that is not valid JSON: " + payload.getKey());
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Walk the documents looking for driver records: objects with an id, a name and a value
+     */
+    private static Map<String, Map<String, Object>> findPlayers(Collection<Object> documents) {
+        Map<String, Map<String, Object>> players = new LinkedHashMap<>();
+        for (Object document : documents) {
+            walk(document, map -> {
+                String id = getString(map, ID_KEYS);
+                if (id != null && getString(map, NAME_KEYS) != null && getNumber(map, VALUE_KEYS) != null
+                        && !isConstructor(map)) {
+                    players.putIfAbsent(id, map);
+                }
+            });
+        }
+        return players;
+    }
+
+    private static boolean isConstructor(Map<String, Object> player) {
+        Double skill = getNumber(player, "Skill");
+        String position = getString(player, "PositionName");
+        return (skill != null && skill == 2)
+                || (position != null && position.toUpperCase(Locale.ROOT).contains("CONSTRUCTOR"));
+    }
+
+    private static Piloto buildPiloto(String id, Map<String, Object> player, Map<String, Object> documents) {
+        String name = getString(player, NAME_KEYS);
+        String team = getString(player, TEAM_KEYS);
+        String fullName = (team == null || team.isEmpty()) ? name : name + " " + team;
+
+        double currentValue = getNumber(player, VALUE_KEYS);
+        double trendValue = 0.0;
+        Double trend = getNumber(player, TREND_KEYS);
+        Double oldValue = getNumber(player, OLD_VALUE_KEYS);
+        if (trend != null) {
+            trendValue = trend;
+        } else if (oldValue != null) {
+            trendValue = Math.round((currentValue - oldValue) * 10) / 10.0;
+        }
+
+        Map<String, Integer> results = findResults(id, player, documents);
+        if (results.isEmpty()) {
+            System.out.println("No circuit results found for " + fullName);
+        }
+
+        // Same layout as the popup scrape: only the last two circuits carry value and trend
+        Piloto piloto = new Piloto(fullName);
+        piloto.setValue(currentValue);
+        int lastIndex = results.size() - 1;
+        for (Map.Entry<String, Integer> entry : results.entrySet()) {
+            if (lastIndex <= 1) {
+                piloto.addCircuitData(entry.getKey(), entry.getValue(), currentValue, trendValue);
+            } else {
+                piloto.addData(entry.getKey(), entry.getValue());
+            }
+            lastIndex--;
+        }
+        return piloto;
+    }
+
+    /**
+     * Collect the (circuit, points) results of a driver, looking first inside the driver record
+     * and then in every document that belongs to the driver
+     */
+    private static Map<String, Integer> findResults(String id, Map<String, Object> player,
+                                                    Map<String, Object> documents) {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        // Skip the record itself: its own name and points are not a circuit result
+        for (Object child : player.values()) {
+            collectResults(child, results);
+        }
+
+        for (Map.Entry<String, Object> document : documents.entrySet()) {
+            if (results.isEmpty() && belongsTo(id, document.getKey(), document.getValue())) {
+                collectResults(document.getValue(), results);
+            }
+        }
+        return results;
+    }
+
+    private static void collectResults(Object node, Map<String, Integer> results) {
+        walk(node, map -> {
+            String circuit = getString(map, CIRCUIT_KEYS);
+            Double points = getNumber(map, POINTS_KEYS);
+            if (circuit != null && points != null) {
+                results.putIfAbsent(circuit, points.intValue());
+            }
+        });
+    }
+
+    /**
+     * A per-driver feed either names the driver in its URL or contains exactly that id at its root
+     */
+    private static boolean belongsTo(String id, String url, Object document) {
+        Matcher matcher = URL_ID_PATTERN.matcher(url);
+        if (matcher.find() && matcher.group(1).equals(id)) {
+            return true;
+        }
+        Object root = document;
+        if (root instanceof Map && ((Map<?, ?>) root).size() == 1) {
+            root = ((Map<?, ?>) root).values().iterator().next();
+        }
+        if (root instanceof Map) {
+            @SuppressWarnings("unchecked")
+            String rootId = getString((Map<String, Object>) root, ID_KEYS);
+            return id.equals(rootId);
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void walk(Object node, Consumer<Map<String, Object>> visitor) {
+        if (node instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) node;
+            visitor.accept(map);
+            for (Object child : map.values()) {
+                walk(child, visitor);
+            }
+        } else if (node instanceof List) {
+            for (Object child : (List<Object>) node) {
+                walk(child, visitor);
+            }
+        }
+    }
+
+    private static Object get(Map<String, Object> map, String... keys) {
+        for (String key : keys) {
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(key) && entry.getValue() != null
+                        && !(entry.getValue() instanceof Map) && !(entry.getValue() instanceof List)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getString(Map<String, Object> map, String... keys) {
+        Object value = get(map, keys);
+        if (value == null) {
+            return null;
+        }
+        // Whole numbers come back as Long, but ids must compare equal to the URL token
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Double getNumber(Map<String, Object> map, String... keys) {
+        Object value = get(map, keys);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.toString().replace(',', '.').replaceAll("[^0-9.+-]", ""));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
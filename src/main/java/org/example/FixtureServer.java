@@ -0,0 +1,202 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local HTTP server that replays a statistics page recorded with {@link StatScrapper#recordFixtures(Path)},
+ * so the scraper can run without network access and always against the same data.
+ *
+ * <pre>
+ * fixtures/stats.html        the page with the driver list, scripts removed
+ * fixtures/popups/N.html     the popup of driver row N
+ * fixtures/feeds.txt         the path of every recorded JSON feed, one per line
+ * fixtures/feeds/...         the feeds, under the same path as on the website
+ * </pre>
+ *
+ * Every response can be delayed to simulate a slow connection. Run it on its own with
+ * <code>java -Dfixture.latency=200 -cp ... org.example.FixtureServer fixtures 8080</code> and point
+ * the scraper at it with <code>-Dscraper.url=http://localhost:8080/stats.html -Dscraper.headless=true</code>.
+ */
+public class FixtureServer implements AutoCloseable {
+    static final String PAGE = "stats.html";
+    static final String POPUP_DIRECTORY = "popups";
+    static final String FEED_MANIFEST = "feeds.txt";
+
+    // Replays what the website does: the list only appears once its feeds have loaded, clicking
+    // a row loads that driver's popup and the close button removes it again
+    private static final String REPLAY_SCRIPT =
+            "(function () {" +
+            "  var list = document.querySelector('.si-stats__tracker-grid-rhs ul');" +
+            "  var parent = list && list.parentNode;" +
+            "  if (parent) parent.removeChild(list);" +
+            "  fetch('" + FEED_MANIFEST + "')" +
+            "    .then(function (r) { return r.ok ? r.text() : ''; })" +
+            "    .then(function (text) {" +
+            "      return Promise.all(text.split('\\n').filter(function (path) { return path.trim(); })" +
+            "        .map(function (path) { return fetch(path.trim()).catch(function () {}); }));" +
+            "    })" +
+            "    .catch(function () {})" +
+            "    .then(function () { if (parent) parent.appendChild(list); });" +
+            "  document.addEventListener('click', function (event) {" +
+            "    var close = event.target.closest('.si-popup__close');" +
+            "    if (close) {" +
+            "      var open = close.closest('[data-fixture-popup]');" +
+            "      if (open) open.remove();" +
+            "      return;" +
+            "    }" +
+            "    var row = event.target.closest('.si-stats__tracker-grid-rhs ul > li');" +
+            "    if (!row) return;" +
+            "    var index = Array.prototype.indexOf.call(row.parentNode.children, row);" +
+            "    fetch('" + POPUP_DIRECTORY + "/' + index + '.html')" +
+            "      .then(function (r) { return r.text(); })" +
+            "      .then(function (html) {" +
+            "        document.querySelectorAll('[data-fixture-popup]').forEach(function (el) { el.remove(); });" +
+            "        var holder = document.createElement('div');" +
+            "        holder.innerHTML = html;" +
+            "        var popup = holder.firstElementChild;" +
+            "        popup.setAttribute('data-fixture-popup', '');" +
+            "        document.querySelector('.si-master__wrap').appendChild(popup);" +
+            "      });" +
+            "  });" +
+            "})();";
+
+    private final Path root;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Start serving the fixture directory
+     * @param root The directory written by {@link StatScrapper#recordFixtures(Path)}
+     * @param port The port to listen on, 0 for any free port
+     * @param latencyMillis How long every response is delayed
+     * @param jitterMillis Up to how much extra random delay is added to each response
+     */
+    public FixtureServer(Path root, int port, long latencyMillis, long jitterMillis) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+
+        if (!Files.isRegularFile(this.root.resolve(PAGE))) {
+            throw new IOException("No recorded page at " + this.root.resolve(PAGE));
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // One thread per request, so delayed responses for parallel sessions overlap like they would online
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try {
+                serve(exchange);
+            } catch (Exception e) {
+                System.err.println("Error serving " + exchange.getRequestURI() + ": " + e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        System.out.println("Serving fixtures from " + this.root + " at " + getUrl()
+                + " (latency " + latencyMillis + " ms, jitter " + jitterMillis + " ms)");
+    }
+
+    /**
+     * @return The URL of the recorded statistics page, to use as scraper.url
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/" + PAGE;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException, InterruptedException {
+        delay();
+
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/")) {
+            path = "/" + PAGE;
+        }
+        Path file = root.resolve(path.substring(1)).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        byte[] body = Files.readAllBytes(file);
+        if (file.getFileName().toString().equals(PAGE)) {
+            body = injectReplayScript(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", contentType(file));
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long millis = latencyMillis;
+        if (jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static String injectReplayScript(String page) {
+        String script = "<script>" + REPLAY_SCRIPT + "</script>";
+        int end = page.lastIndexOf("</body>");
+        return end < 0 ? page + script : page.substring(0, end) + script + page.substring(end);
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        } else if (name.endsWith(".json")) {
+            return "application/json; charset=utf-8";
+        } else if (name.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        } else if (name.endsWith(".txt")) {
+            return "text/plain; charset=utf-8";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * Stop the server
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serve a fixture directory until the process is stopped
+     * @param args The fixture directory (default "fixtures") and the port (default 8080).
+     *             Set -Dfixture.latency and -Dfixture.jitter in milliseconds to slow responses down.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "fixtures");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        long latency = Long.getLong("fixture.latency", 0);
+        long jitter = Long.getLong("fixture.jitter", 0);
+
+        new FixtureServer(directory, port, latency, jitter);
+        System.out.println("Press Ctrl+C to stop");
+    }
+}
@@ -0,0 +1,14 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * A set of drivers picked by {@link LineupOptimizer}
+ *
+ * @param drivers The drivers, best projected points first
+ * @param cost Total current value in millions
+ * @param points Total projected points for the next race
+ * @param margin Total points the drivers are projected to score above their Good price threshold
+ */
+public record Lineup(List<Piloto> drivers, double cost, double points, int margin) {
+}
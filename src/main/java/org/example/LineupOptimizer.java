@@ -0,0 +1,291 @@
+package org.example;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the lineups with the most projected points whose total value fits under the budget.
+ * <p>
+ * A driver is projected to score the average of their last {@link PriceCalc#WINDOW} races, the same
+ * races {@link PriceCalc} prices them on. Lineups with equal points are ranked by how far the drivers
+ * are projected to score above their Good price threshold, i.e. how likely they are to gain value.
+ * <p>
+ * The search is a branch and bound over the drivers sorted by projected points: a branch is
+ * dropped when even the best remaining drivers cannot beat the K-th best lineup found so far, when
+ * the cheapest remaining drivers no longer fit the budget, or when too few drivers of the current
+ * team are left to respect the swap limit. The first driver picked splits the search into
+ * independent branches that run in parallel and share the best lineups found.
+ */
+public class LineupOptimizer {
+    private final int size;
+    private final int budgetTenths;
+
+    /**
+     * @param size Number of drivers in a lineup
+     * @param budget Maximum total value of a lineup in millions
+     */
+    public LineupOptimizer(int size, double budget) {
+        this.size = size;
+        this.budgetTenths = (int) Math.round(budget * 10);
+    }
+
+    /**
+     * Find the best lineups
+     * @param pilotos The drivers to choose from, priced by {@link PriceCalc#processLastTwoEntries(Piloto)}
+     * @param constraints Drivers that must or must not be picked and the swap limit
+     * @param count How many lineups to return
+     * @return Up to count lineups, best first. Empty if no lineup satisfies the constraints.
+     */
+    public List<Lineup> best(List<Piloto> pilotos, Constraints constraints, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Required drivers are in every lineup, the search only fills the remaining slots
+        List<Piloto> required = new ArrayList<>();
+        List<Piloto> candidates = new ArrayList<>();
+        for (Piloto piloto : new LinkedHashSet<>(pilotos)) {
+            if (constraints.excluded().contains(piloto) || costTenths(piloto) <= 0) {
+                continue;
+            }
+            if (constraints.required().contains(piloto)) {
+                required.add(piloto);
+            } else {
+                candidates.add(piloto);
+            }
+        }
+        if (required.size() < constraints.required().size()) {
+            System.out.println("Some required drivers are excluded or have no value");
+            return new ArrayList<>();
+        }
+
+        int slots = size - required.size();
+        int budgetLeft = budgetTenths;
+        int keptRequired = 0;
+        for (Piloto piloto : required) {
+            budgetLeft -= costTenths(piloto);
+            if (constraints.current().contains(piloto)) {
+                keptRequired++;
+            }
+        }
+        if (slots < 0 || budgetLeft < 0 || candidates.size() < slots) {
+            return new ArrayList<>();
+        }
+
+        candidates.sort(Comparator.comparingDouble(LineupOptimizer::projectedPoints).reversed()
+                .thenComparingInt(LineupOptimizer::costTenths));
+        Search search = new Search(candidates, required, constraints, slots, count);
+        int needKept = constraints.current().isEmpty() ? 0
+                : Math.max(0, Math.min(size, constraints.current().size()) - constraints.maxSwaps()) - keptRequired;
+
+        if (slots == 0) {
+            search.branch(-1, 0, budgetLeft, needKept);
+        } else {
+            int finalBudget = budgetLeft;
+            IntStream.rangeClosed(0, candidates.size() - slots).parallel()
+                    .forEach(first -> search.branch(first, slots, finalBudget, needKept));
+        }
+        return search.best.sorted();
+    }
+
+    /**
+     * @param piloto The driver
+     * @return Points expected in the next race: the average of the races of the price window
+     */
+    public static double projectedPoints(Piloto piloto) {
+        return piloto.getStats().last(PriceCalc.WINDOW).meanPoints();
+    }
+
+    /**
+     * @param piloto The driver
+     * @return The current value in tenths of a million
+     */
+    static int costTenths(Piloto piloto) {
+        return (int) Math.round(piloto.getCurrentValue() * 10);
+    }
+
+    private static int margin(Piloto piloto) {
+        return (int) Math.round(projectedPoints(piloto)) - piloto.getPointsToGood();
+    }
+
+    /**
+     * What-if rules for a search
+     *
+     * @param required Drivers every lineup must contain
+     * @param excluded Drivers no lineup may contain
+     * @param current The current team, empty when any lineup is allowed
+     * @param maxSwaps How many drivers of the current team may be replaced
+     */
+    public record Constraints(Set<Piloto> required, Set<Piloto> excluded, Set<Piloto> current, int maxSwaps) {
+        /**
+         * @return Constraints that allow every lineup
+         */
+        public static Constraints none() {
+            return new Constraints(Set.of(), Set.of(), Set.of(), 0);
+        }
+    }
+
+    /**
+     * The state shared by the parallel branches. The arrays are read-only once built.
+     */
+    private static class Search {
+        private final List<Piloto> candidates;
+        private final List<Piloto> required;
+        private final double[] points;
+        private final int[] costs;
+        private final boolean[] current;
+        // pointsPrefix[i] is the total points of candidates 0..i-1, the best r after i are i..i+r-1
+        private final double[] pointsPrefix;
+        // cheapest[i][r] is the lowest total cost of r candidates taken from i onwards
+        private final int[][] cheapest;
+        // currentFrom[i] is how many members of the current team are among candidates i onwards
+        private final int[] currentFrom;
+        private final double requiredPoints;
+        private final TopLineups best;
+
+        Search(List<Piloto> candidates, List<Piloto> required, Constraints constraints, int slots, int count) {
+            this.candidates = candidates;
+            this.required = required;
+            this.best = new TopLineups(count);
+
+            int n = candidates.size();
+            points = new double[n];
+            costs = new int[n];
+            current = new boolean[n];
+            pointsPrefix = new double[n + 1];
+            for (int i = 0; i < n; i++) {
+                Piloto piloto = candidates.get(i);
+                points[i] = projectedPoints(piloto);
+                costs[i] = costTenths(piloto);
+                current[i] = constraints.current().contains(piloto);
+                pointsPrefix[i + 1] = pointsPrefix[i] + points[i];
+            }
+
+            cheapest = new int[n + 1][slots + 1];
+            currentFrom = new int[n + 1];
+            for (int r = 1; r <= slots; r++) {
+                cheapest[n][r] = Integer.MAX_VALUE;
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                currentFrom[i] = currentFrom[i + 1] + (current[i] ? 1 : 0);
+                for (int r = 1; r <= slots; r++) {
+                    int take = cheapest[i + 1][r - 1] == Integer.MAX_VALUE ? Integer.MAX_VALUE
+                            : costs[i] + cheapest[i + 1][r - 1];
+                    cheapest[i][r] = Math.min(cheapest[i + 1][r], take);
+                }
+            }
+
+            double total = 0;
+            for (Piloto piloto : required) {
+                total += projectedPoints(piloto);
+            }
+            this.requiredPoints = total;
+        }
+
+        /**
+         * Search every lineup whose best candidate is the given one
+         * @param first The first candidate picked, -1 when there are no slots to fill
+         * @param slots Free slots before picking it
+         * @param budgetLeft Budget in tenths before picking it
+         * @param needKept Current team members the lineup still has to contain
+         */
+        void branch(int first, int slots, int budgetLeft, int needKept) {
+            int[] picked = new int[slots];
+            if (first < 0) {
+                search(candidates.size(), picked, 0, 0, budgetLeft, requiredPoints, needKept);
+                return;
+            }
+            // Candidates before the first pick are skipped, so they can not count as kept members
+            if (costs[first] > budgetLeft || currentFrom[first] < needKept) {
+                return;
+            }
+            picked[0] = first;
+            search(first + 1, picked, 1, slots - 1, budgetLeft - costs[first],
+                    requiredPoints + points[first], needKept - (current[first] ? 1 : 0));
+        }
+
+        private void search(int next, int[] picked, int depth, int slots, int budgetLeft,
+                            double total, int needKept) {
+            if (slots == 0) {
+                if (needKept <= 0) {
+                    best.offer(this, picked, depth, total);
+                }
+                return;
+            }
+            int n = candidates.size();
+            if (n - next < slots
+                    || total + pointsPrefix[next + slots] - pointsPrefix[next] < best.floor
+                    || cheapest[next][slots] > budgetLeft
+                    || Math.min(slots, currentFrom[next]) < needKept) {
+                return;
+            }
+
+            if (costs[next] <= budgetLeft) {
+                picked[depth] = next;
+                search(next + 1, picked, depth + 1, slots - 1, budgetLeft - costs[next],
+                        total + points[next], needKept - (current[next] ? 1 : 0));
+            }
+            search(next + 1, picked, depth, slots, budgetLeft, total, needKept);
+        }
+
+        Lineup toLineup(int[] picked, int depth, double total) {
+            List<Piloto> drivers = new ArrayList<>(required);
+            for (int i = 0; i < depth; i++) {
+                drivers.add(candidates.get(picked[i]));
+            }
+            drivers.sort(Comparator.comparingDouble(LineupOptimizer::projectedPoints).reversed());
+
+            int cost = 0;
+            int margin = 0;
+            for (Piloto piloto : drivers) {
+                cost += costTenths(piloto);
+                margin += margin(piloto);
+            }
+            return new Lineup(Collections.unmodifiableList(drivers), cost / 10.0, total, margin);
+        }
+    }
+
+    /**
+     * The K best lineups found by any branch. floor is the score a lineup needs to get in,
+     * read without locking by the branches to prune.
+     */
+    private static class TopLineups {
+        private static final Comparator<Lineup> ORDER = Comparator.comparingDouble(Lineup::points)
+                .thenComparingInt(Lineup::margin)
+                .thenComparing(Comparator.comparingDouble(Lineup::cost).reversed());
+
+        private final int count;
+        private final PriorityQueue<Lineup> worstFirst = new PriorityQueue<>(ORDER);
+        private volatile double floor = Double.NEGATIVE_INFINITY;
+
+        TopLineups(int count) {
+            this.count = count;
+        }
+
+        void offer(Search search, int[] picked, int depth, double total) {
+            if (total < floor) {
+                return;
+            }
+            Lineup lineup = search.toLineup(picked, depth, total);
+            synchronized (this) {
+                if (worstFirst.size() < count) {
+                    worstFirst.add(lineup);
+                } else if (ORDER.compare(lineup, worstFirst.peek()) > 0) {
+                    worstFirst.poll();
+                    worstFirst.add(lineup);
+                } else {
+                    return;
+                }
+                if (worstFirst.size() == count) {
+                    floor = worstFirst.peek().points();
+                }
+            }
+        }
+
+        synchronized List<Lineup> sorted() {
+            List<Lineup> lineups = new ArrayList<>(worstFirst);
+            lineups.sort(ORDER.reversed());
+            return lineups;
+        }
+    }
+}
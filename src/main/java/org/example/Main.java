@@ -1,11 +1,34 @@
 package org.example;
 
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 import static org.example.NextRacePrinter.printPilotosOrderedByPointsToExcelent;
 
 public class Main {
+    // Number of browser sessions used to scrape, e.g. -Dscraper.sessions=4
+    private static final int SCRAPER_SESSIONS = Integer.getInteger("scraper.sessions", 1);
+    // How option 1 reads the data: "dom" opens every popup, "feed" reads the JSON feeds the page loads
+    private static final String SCRAPER_MODE = System.getProperty("scraper.mode", "dom");
+    // Where option 6 saves the recorded page for FixtureServer, e.g. -Dscraper.fixtures=fixtures
+    private static final String FIXTURE_DIRECTORY = System.getProperty("scraper.fixtures", "fixtures");
+    // Price and save every driver while the next popups are scraped, -Dscraper.pipeline=false does it afterwards
+    private static final boolean SCRAPER_PIPELINE = Boolean.parseBoolean(System.getProperty("scraper.pipeline", "true"));
+    // Drivers in a lineup and the budget option 7 picks them under, e.g. -Dlineup.budget=100
+    private static final int LINEUP_SIZE = Integer.getInteger("lineup.size", 5);
+    private static final double LINEUP_BUDGET = Double.parseDouble(System.getProperty("lineup.budget", "100"));
+    // How many of the best lineups option 7 shows
+    private static final int LINEUP_COUNT = Integer.getInteger("lineup.count", 5);
+    // Races option 8 simulates, e.g. -Dsimulation.trials=10000000
+    private static final long SIMULATION_TRIALS = Long.getLong("simulation.trials", 1_000_000);
+
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         
@@ -13,11 +36,20 @@ public class Main {
         System.out.println("1. Run web scraper to get all new data");
         System.out.println("2. Load saved data and update with new circuits only");
         System.out.println("3. Load saved data and process race data with PriceCalc");
-        System.out.print("Enter your choice (1, 2, or 3): ");
+        System.out.println("4. Convert old .dat files in the data folder to the snapshot format");
+        System.out.println("5. Load a past race snapshot and process it with PriceCalc");
+        System.out.println("6. Record the statistics page to replay it offline");
+        System.out.println("7. Load saved data and pick the best lineups under the budget");
+        System.out.println("8. Load saved data and simulate next race price changes");
+        System.out.println("9. Check the price thresholds against every saved snapshot");
+        System.out.println("10. Load saved data and see what next race scores would do to prices");
+        System.out.print("Enter your choice (1 to 10): ");
         
         String choice = scanner.nextLine().trim();
         
         List<Piloto> pilotos = null;
+        // Set when the pilots were scraped or updated from the website, so they are shown and can be saved
+        boolean scraped = false;
         
         if (choice.equals("2")) {
             // Load saved data
@@ -30,6 +62,7 @@ public class Main {
                 System.out.println("Loaded " + pilotos.size() + " pilots. Checking for updates.....");
                 pilotos = updatePilotCircuits(pilotos);
             }
+            scraped = true;
         } else if (choice.equals("3")) {
             // Load saved data and process with PriceCalc
             pilotos = DataManager.loadPilots();
@@ -37,26 +70,55 @@ public class Main {
             if (pilotos == null || pilotos.isEmpty()) {
                 System.out.println("No saved data found. Please run option 1 or 2 first to gather data.");
             } else {
-                System.out.println("Loaded " + pilotos.size() + " pilots. Processing race data...");
-                System.out.println("\n=== RACE DATA ANALYSIS ===");
-            
-                // Process each pilot with PriceCalc
-                for (Piloto piloto : pilotos) {
-                    System.out.println("\nAnalyzing pilot: " + piloto.getName());
-                    PriceCalc.processLastTwoEntries(piloto);
-                }
-            
-                System.out.println("\n=== ANALYSIS COMPLETE ===");
+                analyzeRaceData(pilotos);
+            }
+        } else if (choice.equals("5")) {
+            pilotos = choosePastSnapshot(scanner);
+
+            if (pilotos == null || pilotos.isEmpty()) {
+                System.out.println("No snapshot loaded.");
+            } else {
+                analyzeRaceData(pilotos);
+            }
+        } else if (choice.equals("4")) {
+            int imported = DataManager.importLegacySnapshots();
+            System.out.println("Converted " + imported + " files.");
+        } else if (choice.equals("6")) {
+            recordFixtures();
+        } else if (choice.equals("7")) {
+            pilotos = DataManager.loadPilots();
+
+            if (pilotos == null || pilotos.isEmpty()) {
+                System.out.println("No saved data found. Please run option 1 or 2 first to gather data.");
+            } else {
+                pickLineups(scanner, pilotos);
+            }
+        } else if (choice.equals("8")) {
+            pilotos = DataManager.loadPilots();
+
+            if (pilotos == null || pilotos.isEmpty()) {
+                System.out.println("No saved data found. Please run option 1 or 2 first to gather data.");
+            } else {
+                simulatePrices(scanner, pilotos);
+            }
+        } else if (choice.equals("9")) {
+            backtest();
+        } else if (choice.equals("10")) {
+            pilotos = DataManager.loadPilots();
 
-                printPilotosOrderedByPointsToExcelent(pilotos);
+            if (pilotos == null || pilotos.isEmpty()) {
+                System.out.println("No saved data found. Please run option 1 or 2 first to gather data.");
+            } else {
+                askWhatIf(scanner, pilotos);
             }
         } else {
             // Default to running the full scraper
             pilotos = runFullScraper();
+            scraped = true;
         }
         
-        // Display the results if we have pilots and didn't choose option 3
-        if (pilotos != null && !pilotos.isEmpty() && !choice.equals("3")) {
+        // Display the results if the pilots were scraped or updated, not only loaded
+        if (scraped && pilotos != null && !pilotos.isEmpty()) {
             displayResults(pilotos);
         
             // Ask if user wants to save the data
@@ -76,14 +138,219 @@ public class Main {
         scanner.close();
     }
     
+    private static void analyzeRaceData(List<Piloto> pilotos) {
+        System.out.println("Loaded " + pilotos.size() + " pilots. Processing race data...");
+        System.out.println("\n=== RACE DATA ANALYSIS ===");
+
+        // Price every pilot in parallel, then print the results in order. Drivers that did not
+        // change since the last run come from the price cache.
+        int hits = PriceCache.hits();
+        List<PriceResult> results = PriceCache.priceAll(pilotos);
+        PriceCache.save();
+        for (int i = 0; i < pilotos.size(); i++) {
+            System.out.println("\nAnalyzing pilot: " + pilotos.get(i).getName());
+            NextRacePrinter.printPriceResult(results.get(i));
+            results.get(i).applyTo(pilotos.get(i));
+        }
+
+        System.out.println("\n=== ANALYSIS COMPLETE ===");
+        System.out.println((PriceCache.hits() - hits) + " of " + pilotos.size()
+                + " pilots were unchanged since the last analysis");
+
+        printPilotosOrderedByPointsToExcelent(pilotos);
+    }
+
+    private static void priceQuietly(List<Piloto> pilotos) {
+        List<PriceResult> results = PriceCache.priceAll(pilotos);
+        PriceCache.save();
+        for (int i = 0; i < pilotos.size(); i++) {
+            results.get(i).applyTo(pilotos.get(i));
+        }
+    }
+
+    private static void pickLineups(Scanner scanner, List<Piloto> pilotos) {
+        priceQuietly(pilotos);
+        LineupOptimizer optimizer = new LineupOptimizer(LINEUP_SIZE, LINEUP_BUDGET);
+        NextRacePrinter.printLineups(optimizer.best(pilotos, LineupOptimizer.Constraints.none(), LINEUP_COUNT), LINEUP_BUDGET);
+
+        // What-if runs: drivers are given as parts of their names, separated by commas
+        while (true) {
+            System.out.print("Drivers that must be in the lineup (empty for none, 'q' to quit): ");
+            String keep = scanner.nextLine().trim();
+            if (keep.equalsIgnoreCase("q")) {
+                return;
+            }
+            System.out.print("Drivers to leave out: ");
+            String leaveOut = scanner.nextLine().trim();
+            System.out.print("Current team (empty for none): ");
+            String team = scanner.nextLine().trim();
+            int maxSwaps = LINEUP_SIZE;
+            if (!team.isEmpty()) {
+                System.out.print("Maximum swaps: ");
+                try {
+                    maxSwaps = Integer.parseInt(scanner.nextLine().trim());
+                } catch (NumberFormatException e) {
+                    System.out.println("Not a number, allowing any swap");
+                }
+            }
+
+            LineupOptimizer.Constraints constraints = new LineupOptimizer.Constraints(findDrivers(pilotos, keep),
+                    findDrivers(pilotos, leaveOut), findDrivers(pilotos, team), maxSwaps);
+            long start = System.nanoTime();
+            List<Lineup> lineups = optimizer.best(pilotos, constraints, LINEUP_COUNT);
+            NextRacePrinter.printLineups(lineups, LINEUP_BUDGET);
+            System.out.println("Searched in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    private static void simulatePrices(Scanner scanner, List<Piloto> pilotos) {
+        priceQuietly(pilotos);
+        System.out.print("Team to simulate (comma separated, empty for none): ");
+        Set<Piloto> team = findDrivers(pilotos, scanner.nextLine().trim());
+
+        long start = System.nanoTime();
+        PriceSimulation.Result result = new PriceSimulation(pilotos, team).run(SIMULATION_TRIALS, System.nanoTime());
+        NextRacePrinter.printPriceOutlook(result, !team.isEmpty());
+        System.out.println("Simulated in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void askWhatIf(Scanner scanner, List<Piloto> pilotos) {
+        long start = System.nanoTime();
+        PriceTable table = PriceCalc.buildTable(pilotos);
+        System.out.println("Priced every score from " + PriceTable.MIN_POINTS + " to " + PriceTable.MAX_POINTS
+                + " for " + table.size() + " drivers in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        // A what-if is part of a driver's name followed by the points to try, e.g. "norris 5 15 30"
+        while (true) {
+            System.out.print("Driver and next race points (empty or 'q' to quit): ");
+            String[] words = scanner.nextLine().trim().split("\\s+");
+            int first = words.length;
+            while (first > 0 && words[first - 1].matches("-?\\d{1,6}")) {
+                first--;
+            }
+            String name = String.join(" ", Arrays.copyOfRange(words, 0, first));
+            if (name.isEmpty() || name.equalsIgnoreCase("q")) {
+                return;
+            }
+            if (first == words.length) {
+                System.out.println("Give at least one points value after the name");
+                continue;
+            }
+
+            int[] points = new int[words.length - first];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = Integer.parseInt(words[first + i]);
+            }
+            for (Piloto piloto : findDrivers(pilotos, name)) {
+                NextRacePrinter.printWhatIf(table, table.row(piloto.getName()), points);
+            }
+        }
+    }
+
+    private static void backtest() {
+        long start = System.nanoTime();
+        List<DataManager.ArchivedSnapshot> snapshots = DataManager.loadArchive();
+        long loaded = System.nanoTime();
+        Backtest.Report report = Backtest.run(snapshots);
+        long done = System.nanoTime();
+
+        NextRacePrinter.printBacktest(report);
+        System.out.println("Loaded " + snapshots.size() + " snapshots in " + (loaded - start) / 1_000_000
+                + " ms, backtested in " + (done - loaded) / 1_000_000 + " ms");
+    }
+
+    private static Set<Piloto> findDrivers(List<Piloto> pilotos, String names) {
+        Set<Piloto> found = new LinkedHashSet<>();
+        for (String name : names.split(",")) {
+            String part = name.trim().toLowerCase();
+            if (part.isEmpty()) {
+                continue;
+            }
+            boolean matched = false;
+            for (Piloto piloto : pilotos) {
+                if (piloto.getName().toLowerCase().contains(part)) {
+                    found.add(piloto);
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                System.out.println("No driver matches '" + name.trim() + "'");
+            }
+        }
+        return found;
+    }
+
+    private static List<Piloto> choosePastSnapshot(Scanner scanner) {
+        List<SnapshotStore.Commit> snapshots = DataManager.listSnapshots();
+        if (snapshots.isEmpty()) {
+            System.out.println("No snapshots saved yet. Save data with option 1 or 2 first.");
+            return null;
+        }
+
+        System.out.println("\nSaved snapshots:");
+        for (SnapshotStore.Commit snapshot : snapshots) {
+            System.out.println("  " + snapshot.timestamp() + "  " + snapshot.label());
+        }
+        System.out.print("Enter a race name or a timestamp: ");
+        String answer = scanner.nextLine().trim();
+
+        try {
+            return DataManager.loadPilotsAt(Instant.parse(answer));
+        } catch (DateTimeParseException e) {
+            return DataManager.loadPilotsByLabel(answer);
+        }
+    }
+
+    private static void recordFixtures() {
+        StatScrapper scraper = new StatScrapper();
+
+        try {
+            scraper.recordFixtures(Paths.get(FIXTURE_DIRECTORY));
+        } catch (Exception e) {
+            System.err.println("Error recording fixtures: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            // Make sure to close the WebDriver
+            scraper.close();
+        }
+    }
+
     private static List<Piloto> runFullScraper() {
+        if (SCRAPER_MODE.equals("feed")) {
+            return runFeedScraper();
+        }
+        if (!SCRAPER_PIPELINE) {
+            return scrapeDrivers(ScrapeCheckpoint.open());
+        }
+
+        // Pricing and saving run on their own threads while the popups are being read
+        ScrapePipeline pipeline = new ScrapePipeline();
+        List<Piloto> pilotos;
+        try {
+            pilotos = scrapeDrivers(pipeline.getCheckpoint());
+        } finally {
+            pipeline.finish();
+        }
+
+        // Every driver is priced by now, rank a copy so the list keeps the website order
+        if (pilotos != null && !pilotos.isEmpty()) {
+            printPilotosOrderedByPointsToExcelent(new ArrayList<>(pilotos));
+        }
+        return pilotos;
+    }
+
+    private static List<Piloto> scrapeDrivers(ScrapeCheckpoint checkpoint) {
+        if (SCRAPER_SESSIONS > 1) {
+            return runParallelScraper(checkpoint);
+        }
+
         // Create an instance of the StatScrapper
         StatScrapper scraper = new StatScrapper();
         List<Piloto> pilotos = null;
         
         try {
             // Run the scraper and get the list of Piloto objects
-            pilotos = scraper.scrapeDriverStats();
+            pilotos = scraper.scrapeDriverStats(checkpoint);
         } catch (Exception e) {
             System.err.println("Error in scraping process: " + e.getMessage());
             e.printStackTrace();
@@ -96,6 +363,10 @@ public class Main {
     }
     
     private static List<Piloto> updatePilotCircuits(List<Piloto> existingPilotos) {
+        if (SCRAPER_SESSIONS > 1) {
+            return updatePilotCircuitsParallel(existingPilotos);
+        }
+
         // Create an instance of the StatScrapper
         StatScrapper scraper = new StatScrapper();
         List<Piloto> updatedPilotos = null;
@@ -116,6 +387,62 @@ public class Main {
         return updatedPilotos;
     }
     
+    private static List<Piloto> runFeedScraper() {
+        // One page load is enough, so a single session is used whatever scraper.sessions says
+        StatScrapper scraper = new StatScrapper();
+        List<Piloto> pilotos = null;
+
+        try {
+            pilotos = scraper.scrapeDriverStatsFromFeeds();
+        } catch (Exception e) {
+            System.err.println("Error in scraping process: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            // Make sure to close the WebDriver
+            scraper.close();
+        }
+
+        return pilotos;
+    }
+
+    private static List<Piloto> runParallelScraper(ScrapeCheckpoint checkpoint) {
+        // Create a pool of browser sessions
+        StatScrapperPool pool = new StatScrapperPool(SCRAPER_SESSIONS);
+        List<Piloto> pilotos = null;
+
+        try {
+            pilotos = pool.scrapeDriverStats(checkpoint);
+        } catch (Exception e) {
+            System.err.println("Error in scraping process: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            // Make sure to close every WebDriver
+            pool.close();
+        }
+
+        return pilotos;
+    }
+
+    private static List<Piloto> updatePilotCircuitsParallel(List<Piloto> existingPilotos) {
+        // Create a pool of browser sessions
+        StatScrapperPool pool = new StatScrapperPool(SCRAPER_SESSIONS);
+        List<Piloto> updatedPilotos = null;
+
+        try {
+            updatedPilotos = pool.updatePilotCircuits(existingPilotos);
+        } catch (Exception e) {
+            System.err.println("Error updating pilots: " + e.getMessage());
+            e.printStackTrace();
+            // Return the original list if there was an error
+            updatedPilotos = existingPilotos;
+        } finally {
+            // Make sure to close every WebDriver
+            pool.close();
+        }
+
+        return updatedPilotos;
+    }
+
     private static void displayResults(List<Piloto> pilotos) {
         System.out.println("\n=== DRIVER INFORMATION ===\n");
         if (pilotos != null && !pilotos.isEmpty()) {
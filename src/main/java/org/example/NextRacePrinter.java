@@ -1,9 +1,36 @@
 package org.example;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
 public class NextRacePrinter {
+    // Names of the PriceSimulation outcomes, worst first
+    private static final String[] BAND_NAMES = {"Below Poor", "Poor", "Good", "Excellent"};
+
+    /**
+     * Prints how a driver was priced: the races used, their PPM and the points needed for each band
+     *
+     * @param result The result of {@link PriceCalc#price(Piloto)}
+     */
+    public static void printPriceResult(PriceResult result) {
+        if (result.thresholds() == null) {
+            System.out.println("No data available for pilot: " + result.name());
+            return;
+        }
+
+        for (PriceResult.CircuitPpm circuit : result.circuits()) {
+            System.out.println("Circuit: " + circuit.name());
+            System.out.println("  Race Points: " + circuit.points());
+            System.out.println("  Race Value: " + circuit.raceValue());
+            System.out.println("  Race PPM: " + circuit.ppm());
+        }
+        System.out.println("Average PPM: " + result.averagePpm());
+        System.out.println("Current Value: " + result.currentValue());
+        System.out.println("Points to Poor: " + result.thresholds().pointsToPoor());
+        System.out.println("Points to Good: " + result.thresholds().pointsToGood());
+        System.out.println("Points to Excelent: " + result.thresholds().pointsToExcelent());
+    }
     
     /**
      * Prints a list of Pilotos ordered by pointsToExcelent in ascending order
@@ -62,4 +89,115 @@ public class NextRacePrinter {
         // Print footer
         System.out.println("\n=== END OF RANKING ===\n");
     }
-}
\ No newline at end of file
+
+    /**
+     * Prints lineups picked by {@link LineupOptimizer}, best first
+     *
+     * @param lineups The lineups to print
+     * @param budget The budget they were picked under, in millions
+     */
+    public static void printLineups(List<Lineup> lineups, double budget) {
+        if (lineups == null || lineups.isEmpty()) {
+            System.out.println("No lineup fits the budget and constraints.");
+            return;
+        }
+
+        System.out.println("\n=== BEST LINEUPS UNDER $" + budget + "M ===\n");
+        int rank = 1;
+        for (Lineup lineup : lineups) {
+            System.out.println(String.format("#%d  %.1f projected pts  $%.1fM  %+d pts above Good",
+                               rank++, lineup.points(), lineup.cost(), lineup.margin()));
+            for (Piloto piloto : lineup.drivers()) {
+                System.out.println(String.format("      %-30s %8.1f pts  $%.1fM",
+                                   piloto.getName(), LineupOptimizer.projectedPoints(piloto),
+                                   LineupOptimizer.costTenths(piloto) / 10.0));
+            }
+        }
+        System.out.println("\n=== END OF LINEUPS ===\n");
+    }
+
+    /**
+     * Prints the chance of each price outcome per driver, most expected value gained first
+     *
+     * @param result The simulation to print
+     * @param hasTeam Whether a team was simulated and its totals should be printed
+     */
+    public static void printPriceOutlook(PriceSimulation.Result result, boolean hasTeam) {
+        if (result == null || result.drivers().isEmpty()) {
+            System.out.println("No pilots to simulate.");
+            return;
+        }
+
+        List<PriceSimulation.Outlook> outlooks = new ArrayList<>(result.drivers());
+        outlooks.sort(Comparator.comparingDouble(PriceSimulation.Outlook::expectedChange).reversed());
+
+        System.out.println("\n=== NEXT RACE PRICE OUTLOOK (" + result.trials() + " simulated races) ===\n");
+        System.out.println(String.format("%-30s %10s %10s %10s %10s %12s",
+                           "Driver Name", "< Poor", "Poor", "Good", "Excellent", "Exp. Change"));
+        System.out.println("-".repeat(30) + " " + "-".repeat(10) + " " + "-".repeat(10) + " "
+                           + "-".repeat(10) + " " + "-".repeat(10) + " " + "-".repeat(12));
+        for (PriceSimulation.Outlook outlook : outlooks) {
+            System.out.println(String.format("%-30s %9.1f%% %9.1f%% %9.1f%% %9.1f%% %+11.2fM",
+                               outlook.piloto().getName(),
+                               outlook.belowPoor() * 100, outlook.poor() * 100,
+                               outlook.good() * 100, outlook.excellent() * 100,
+                               outlook.expectedChange()));
+        }
+
+        if (hasTeam) {
+            System.out.println(String.format("%nTeam: expected value change %+.2fM, %.1f%% chance of gaining value",
+                               result.expectedTeamChange(), result.teamGainProbability() * 100));
+        }
+        System.out.println("\n=== END OF OUTLOOK ===\n");
+    }
+
+    /**
+     * Prints what a driver's next race would do to their price for each of a few scores
+     *
+     * @param table The what-if table of the snapshot, from {@link PriceCalc#buildTable(List)}
+     * @param row The driver's row in the table
+     * @param points The next-race scores to look up
+     */
+    public static void printWhatIf(PriceTable table, int row, int[] points) {
+        System.out.println("\n" + table.name(row) + ":");
+        System.out.println(String.format("  %8s %12s %-12s %8s", "Points", "Average PPM", "Band", "Change"));
+        for (int score : points) {
+            System.out.println(String.format("  %8d %12.3f %-12s %+7.1fM", score, table.averagePpm(row, score),
+                               BAND_NAMES[table.band(row, score)], table.changeTenths(row, score) / 10.0));
+        }
+    }
+
+    /**
+     * Prints how often the price thresholds predicted the recorded value changes
+     *
+     * @param report The result of {@link Backtest#run(List)}
+     */
+    public static void printBacktest(Backtest.Report report) {
+        System.out.println("\n=== PRICE THRESHOLD BACKTEST (" + report.snapshots() + " snapshots) ===\n");
+        if (report.total().races() == 0) {
+            System.out.println("No race had the values needed to check it (" + report.skipped() + " races skipped).");
+            System.out.println("Save data after every race so each race has a value and trend.");
+            return;
+        }
+
+        String formatString = "%-30s %8s %10s %12s";
+        System.out.println(String.format(formatString, "Driver Name", "Races", "Exact", "Direction"));
+        System.out.println("-".repeat(30) + " " + "-".repeat(8) + " " + "-".repeat(10) + " " + "-".repeat(12));
+        for (Backtest.Score score : report.drivers()) {
+            printScore(formatString, score);
+        }
+        System.out.println();
+        for (Backtest.Score score : report.tiers()) {
+            printScore(formatString, score);
+        }
+        printScore(formatString, report.total());
+        System.out.println("\n" + report.skipped() + " races skipped for missing values");
+        System.out.println("\n=== END OF BACKTEST ===\n");
+    }
+
+    private static void printScore(String formatString, Backtest.Score score) {
+        System.out.println(String.format(formatString, score.name(), score.races(),
+                           String.format("%.1f%%", score.exactRate() * 100),
+                           String.format("%.1f%%", score.directionRate() * 100)));
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of the page taken with a single script call and parsed in-process with jsoup, so reading
+ * many fields costs one WebDriver round trip instead of one per field.
+ * <p>
+ * The HTML source does not contain the text as the user sees it: CSS can change its case and
+ * break it into lines. Before copying the page, every element matching the selectors given to
+ * {@link #capture(WebDriver, String...)} gets its rendered text stored in an attribute, so
+ * {@link #text(Element)} returns the same text WebElement.getText() would.
+ */
+public class PageSnapshot {
+    private static final String RENDERED_TEXT = "data-rendered-text";
+    private static final String CAPTURE_SCRIPT =
+            "var selectors = arguments[0], attribute = arguments[1];" +
+            "selectors.forEach(function (selector) {" +
+            "  document.querySelectorAll(selector).forEach(function (el) {" +
+            "    el.setAttribute(attribute, el.innerText.trim());" +
+            "  });" +
+            "});" +
+            "return document.documentElement.outerHTML;";
+
+    private final Document document;
+
+    /**
+     * @param html The page source to parse
+     */
+    public PageSnapshot(String html) {
+        this.document = Jsoup.parse(html);
+    }
+
+    /**
+     * Copy the current page of the driver
+     * @param driver The driver showing the page
+     * @param textSelectors The elements whose rendered text will be read from the snapshot
+     * @return The parsed page
+     */
+    public static PageSnapshot capture(WebDriver driver, String... textSelectors) {
+        String html = (String) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT,
+                Arrays.asList(textSelectors), RENDERED_TEXT);
+        return new PageSnapshot(html);
+    }
+
+    /**
+     * @param cssSelector The element to find
+     * @return The first matching element, or null if there is none
+     */
+    public Element first(String cssSelector) {
+        return document.selectFirst(cssSelector);
+    }
+
+    /**
+     * @param id The id of the element
+     * @return The element, or null if there is none
+     */
+    public Element byId(String id) {
+        return document.getElementById(id);
+    }
+
+    /**
+     * @param cssSelector The element to read
+     * @return The text of the first matching element, or null if there is none
+     */
+    public String text(String cssSelector) {
+        Element element = first(cssSelector);
+        return element == null ? null : text(element);
+    }
+
+    /**
+     * The text of an element as the browser rendered it when it matched one of the captured
+     * selectors, otherwise its text from the HTML source
+     * @param element The element to read
+     * @return The text, lines separated by '\n'
+     */
+    public static String text(Element element) {
+        if (element.hasAttr(RENDERED_TEXT)) {
+            return element.attr(RENDERED_TEXT);
+        }
+        return element.text().trim();
+    }
+
+    /**
+     * Find the LI elements of a list the same way findElements(By.tagName("li")) does on its first UL
+     * @param containerSelector The element holding the list
+     * @return The LI elements, empty if the container or list is missing
+     */
+    public List<Element> listItems(String containerSelector) {
+        Element container = first(containerSelector);
+        Element ul = container == null ? null : container.selectFirst("ul");
+        return ul == null ? new ArrayList<>() : ul.select("li");
+    }
+}
@@ -1,32 +1,62 @@
 package org.example;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Piloto implements Serializable{
     @Serial
     private static final long serialVersionUID = 1L;
 
+    // Marks a circuit for which only the points are known
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    // Formats written by older versions, e.g. "-16 pts | $4,5M | -0,5M" or "12 pts"
+    private static final Pattern LEGACY_FULL_PATTERN =
+            Pattern.compile("([-+]?\\d+)\\s+pts\\s+\\|\\s+\\$(\\d+[,.]\\d+)M\\s+\\|\\s+([-+]?\\d+[,.]\\d+)M");
+    private static final Pattern LEGACY_POINTS_PATTERN = Pattern.compile("([-+]?\\d+)\\s+pts");
+
     private String name;
     private double value;
     private int pointsToPoor;
     private int pointsToGood;
     private int pointsToExcelent;
-    private Map<String, String> data;
+    // Circuit results in race order, one slot per circuit. Values and trends are in tenths of a million.
+    private String[] circuitNames;
+    private int[] circuitPoints;
+    private int[] circuitValues;
+    private int[] circuitTrends;
+    private int circuitCount;
+    // Text of the driver's row in the statistics list when it was last scraped
+    private String listSignature;
+    // Built on first use from the circuits above, then kept up to date as circuits are added
+    private transient RollingStats stats;
 
     // Constructor
     public Piloto(String name) {
         this.name = name;
-        this.data = new LinkedHashMap<>();
+        initCircuits(8);
     }
 
     // Constructor with value (keeping for compatibility)
     public Piloto(String name, double value) {
-        this.name = name;
-        this.data = new LinkedHashMap<>();
+        this(name);
+    }
+
+    private void initCircuits(int capacity) {
+        circuitNames = new String[capacity];
+        circuitPoints = new int[capacity];
+        circuitValues = new int[capacity];
+        circuitTrends = new int[capacity];
+        circuitCount = 0;
+        stats = null;
     }
 
     // Getters and setters
@@ -38,25 +68,144 @@ public class Piloto implements Serializable{
         this.name = name;
     }
 
+    /**
+     * Render the circuit results for display
+     * @return A new map of circuit name to text like "12 pts | $19.4M | +0.1M", in race order
+     */
     public Map<String, String> getData() {
+        Map<String, String> data = new LinkedHashMap<>();
+        for (int i = 0; i < circuitCount; i++) {
+            data.put(circuitNames[i], formatCircuit(i));
+        }
         return data;
     }
 
     // Method to add circuit data with points, value and trend
     public void addCircuitData(String circuitName, int points, double value, double trend) {
-        String formattedData = String.format("%d pts | $%.1fM | %s%.1fM", 
-                                            points, 
-                                            value,
-                                            (trend >= 0 ? "+" : ""), 
-                                            trend);
-        data.put(circuitName, formattedData);
+        putCircuit(circuitName, points, toTenths(value), toTenths(trend));
     }
 
-    // For compatibility with existing code - redirects to new method
+    // For compatibility with existing code - stores the points only
     public void addData(String circuitName, Integer points) {
-        String formattedData = String.format("%d pts",
-                points);
-        data.put(circuitName, formattedData);
+        putCircuit(circuitName, points, NO_VALUE, 0);
+    }
+
+    // Replaces the result of a circuit already present, keeping its position, like Map.put did
+    void putCircuit(String circuitName, int points, int valueTenths, int trendTenths) {
+        int index = indexOfCircuit(circuitName);
+        if (index < 0) {
+            if (circuitCount == circuitNames.length) {
+                int capacity = Math.max(8, circuitCount * 2);
+                circuitNames = Arrays.copyOf(circuitNames, capacity);
+                circuitPoints = Arrays.copyOf(circuitPoints, capacity);
+                circuitValues = Arrays.copyOf(circuitValues, capacity);
+                circuitTrends = Arrays.copyOf(circuitTrends, capacity);
+            }
+            index = circuitCount++;
+            circuitNames[index] = circuitName;
+        }
+        circuitPoints[index] = points;
+        circuitValues[index] = valueTenths;
+        circuitTrends[index] = trendTenths;
+        if (stats != null) {
+            stats.update(this, index);
+        }
+    }
+
+    private static int toTenths(double millions) {
+        return (int) Math.round(millions * 10);
+    }
+
+    private String formatCircuit(int index) {
+        if (circuitValues[index] == NO_VALUE) {
+            return String.format("%d pts", circuitPoints[index]);
+        }
+        return String.format("%d pts | $%.1fM | %s%.1fM",
+                circuitPoints[index],
+                circuitValues[index] / 10.0,
+                (circuitTrends[index] >= 0 ? "+" : ""),
+                circuitTrends[index] / 10.0);
+    }
+
+    // Typed access to the circuit results, by position in race order
+    public int getCircuitCount() {
+        return circuitCount;
+    }
+
+    public String getCircuitName(int index) {
+        return circuitNames[index];
+    }
+
+    public int getCircuitPoints(int index) {
+        return circuitPoints[index];
+    }
+
+    // False for circuits stored with addData, which only know the points
+    public boolean hasCircuitValue(int index) {
+        return circuitValues[index] != NO_VALUE;
+    }
+
+    public double getCircuitValue(int index) {
+        return hasCircuitValue(index) ? circuitValues[index] / 10.0 : 0.0;
+    }
+
+    public double getCircuitTrend(int index) {
+        return hasCircuitValue(index) ? circuitTrends[index] / 10.0 : 0.0;
+    }
+
+    // The value the driver had going into the race (value minus its trend), or 0 if unknown
+    public double getRaceValue(int index) {
+        return hasCircuitValue(index) ? getCircuitValue(index) + (getCircuitTrend(index) * -1) : 0.0;
+    }
+
+    // Raw tenths, as stored, for the snapshot writer. NO_VALUE for points-only circuits.
+    int getCircuitValueTenths(int index) {
+        return circuitValues[index];
+    }
+
+    int getCircuitTrendTenths(int index) {
+        return circuitTrends[index];
+    }
+
+    /**
+     * Replace all circuit results at once, used by the snapshot reader
+     * @param names Circuit names in race order
+     * @param points Points per circuit
+     * @param valueTenths Value per circuit in tenths of a million, or NO_VALUE
+     * @param trendTenths Trend per circuit in tenths of a million
+     * @param count The number of circuits in the arrays
+     */
+    void setCircuits(String[] names, int[] points, int[] valueTenths, int[] trendTenths, int count) {
+        circuitNames = names;
+        circuitPoints = points;
+        circuitValues = valueTenths;
+        circuitTrends = trendTenths;
+        circuitCount = count;
+        stats = null;
+    }
+
+    /**
+     * Running statistics over the circuits, see {@link RollingStats}
+     * @return The statistics, up to date with the circuits stored so far
+     */
+    public RollingStats getStats() {
+        if (stats == null) {
+            stats = new RollingStats(this);
+        }
+        return stats;
+    }
+
+    public int indexOfCircuit(String circuitName) {
+        for (int i = 0; i < circuitCount; i++) {
+            if (circuitNames[i].equals(circuitName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasCircuit(String circuitName) {
+        return indexOfCircuit(circuitName) >= 0;
     }
 
     // For compatibility with existing code - does nothing now
@@ -66,6 +215,15 @@ public class Piloto implements Serializable{
     public double getValue() {
         return value;
     }
+
+    // The value set by the scraper, or the value after the last race when it was not set
+    public double getCurrentValue() {
+        int last = circuitCount - 1;
+        if (value <= 0 && last >= 0 && hasCircuitValue(last)) {
+            return getCircuitValue(last);
+        }
+        return value;
+    }
     // For compatibility with existing code - does nothing now
     public void setTrend(double trend) {
         // Trend is now stored per circuit
@@ -98,6 +256,15 @@ public class Piloto implements Serializable{
         this.pointsToExcelent = pointsoExcelent;
     }
 
+    // Getters and setters for the listSignature field
+    public String getListSignature() {
+        return listSignature;
+    }
+
+    public void setListSignature(String listSignature) {
+        this.listSignature = listSignature;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -105,21 +272,75 @@ public class Piloto implements Serializable{
 
         sb.append("Circuit Stats (last 3):\n");
         
-        // Get last 3 circuits using streams
-        Map<String, String> lastThreeCircuits = data.entrySet().stream()
-            .skip(Math.max(0, data.size() - 3))
-            .collect(Collectors.toMap(
-                Map.Entry::getKey,
-                Map.Entry::getValue,
-                (e1, e2) -> e1,
-                LinkedHashMap::new
-            ));
-        
         // Display the last 3 circuits
-        for (Map.Entry<String, String> entry : lastThreeCircuits.entrySet()) {
-            sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        for (int i = Math.max(0, circuitCount - 3); i < circuitCount; i++) {
+            sb.append("  ").append(circuitNames[i]).append(": ").append(formatCircuit(i)).append("\n");
         }
         
         return sb.toString();
     }
+
+    /**
+     * Reads both the current layout and files saved before the circuit results were typed,
+     * which hold them as a Map of formatted strings in a field called "data"
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        name = (String) fields.get("name", null);
+        value = fields.get("value", 0.0);
+        pointsToPoor = fields.get("pointsToPoor", 0);
+        pointsToGood = fields.get("pointsToGood", 0);
+        pointsToExcelent = fields.get("pointsToExcelent", 0);
+        listSignature = (String) fields.get("listSignature", null);
+
+        circuitNames = (String[]) fields.get("circuitNames", null);
+        circuitPoints = (int[]) fields.get("circuitPoints", null);
+        circuitValues = (int[]) fields.get("circuitValues", null);
+        circuitTrends = (int[]) fields.get("circuitTrends", null);
+        circuitCount = fields.get("circuitCount", 0);
+
+        if (circuitNames == null) {
+            initCircuits(8);
+            ObjectStreamClass streamClass = fields.getObjectStreamClass();
+            if (streamClass.getField("data") != null) {
+                @SuppressWarnings("unchecked")
+                Map<String, String> legacyData = (Map<String, String>) fields.get("data", null);
+                if (legacyData != null) {
+                    for (Map.Entry<String, String> entry : legacyData.entrySet()) {
+                        addLegacyCircuitData(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a circuit result from the string format written by older versions
+     * @param circuitName The circuit name
+     * @param formattedData Text like "-16 pts | $4,5M | -0,5M" or "12 pts"
+     */
+    void addLegacyCircuitData(String circuitName, String formattedData) {
+        if (formattedData == null) {
+            return;
+        }
+
+        Matcher matcher = LEGACY_FULL_PATTERN.matcher(formattedData);
+        if (matcher.find()) {
+            // Values were written with the default locale, so the decimal separator may be a comma
+            int points = Integer.parseInt(matcher.group(1));
+            double circuitValue = Double.parseDouble(matcher.group(2).replace(',', '.'));
+            double trend = Double.parseDouble(matcher.group(3).replace(',', '.'));
+            addCircuitData(circuitName, points, circuitValue, trend);
+            return;
+        }
+
+        Matcher simpleMatcher = LEGACY_POINTS_PATTERN.matcher(formattedData);
+        if (simpleMatcher.find()) {
+            addData(circuitName, Integer.parseInt(simpleMatcher.group(1)));
+            return;
+        }
+
+        System.out.println("Could not read saved data for circuit " + circuitName + ": " + formattedData);
+    }
 }
\ No newline at end of file
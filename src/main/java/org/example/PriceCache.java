@@ -0,0 +1,238 @@
+package org.example;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the {@link PriceCalc} result of every driver, so pricing a driver whose last races and
+ * value have not changed since the previous run is a lookup. Each result is stored with a
+ * fingerprint of everything it was computed from; when {@link StatScrapper#updatePilotCircuits(List)}
+ * adds a circuit or the value changes, the fingerprint no longer matches and the driver is priced again.
+ * Results are kept per driver and fingerprint, so going back and forth between snapshots reuses the
+ * results of both; the least recently used ones are dropped past -Dprice.cache.size results.
+ * <p>
+ * The results are kept in {@code data/prices.cache}, next to the saved snapshots, and read on first use.
+ * Run with -Dprice.cache=false to always price from scratch.
+ *
+ * <pre>
+ * int    magic "F1PC"
+ * short  format version
+ * int    number of results, then for each one:
+ *   string driver name, long fingerprint
+ *   double average PPM, double current value
+ *   byte   1 if thresholds follow, then int pointsToPoor, int pointsToGood, int pointsToExcelent
+ *   short  number of circuits, then for each: string name, double points, race value and PPM
+ * </pre>
+ */
+public class PriceCache {
+    private static final File CACHE_FILE = new File("data", "prices.cache");
+    private static final int MAGIC = 0x46315043; // "F1PC"
+    private static final short VERSION = 1;
+    // Off to price every driver again on every run
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("price.cache", "true"));
+    // Results kept before the least recently used are dropped, a season of snapshots fits many times over
+    private static final int MAX_ENTRIES = Math.max(1, Integer.getInteger("price.cache.size", 5000));
+
+    // In access order, guarded by synchronizing on the map itself
+    private static final Map<Key, PriceResult> ENTRIES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PriceResult> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final AtomicInteger HITS = new AtomicInteger();
+    private static final AtomicInteger MISSES = new AtomicInteger();
+    private static boolean loaded;
+    private static volatile boolean dirty;
+
+    private record Key(String name, long fingerprint) {
+    }
+
+    /**
+     * Price a driver, reusing a stored result if one was computed from the same races and value
+     *
+     * @param piloto The driver, which must not change while it is priced
+     * @return The same result as {@link PriceCalc#price(Piloto)}
+     */
+    public static PriceResult price(Piloto piloto) {
+        if (!ENABLED) {
+            return PriceCalc.price(piloto);
+        }
+        load();
+
+        Key key = new Key(piloto.getName(), fingerprint(piloto));
+        PriceResult cached;
+        synchronized (ENTRIES) {
+            cached = ENTRIES.get(key);
+        }
+        if (cached != null) {
+            HITS.incrementAndGet();
+            return cached;
+        }
+
+        MISSES.incrementAndGet();
+        PriceResult result = PriceCalc.price(piloto);
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, result);
+        }
+        dirty = true;
+        return result;
+    }
+
+    /**
+     * Price many drivers in parallel, reusing every result that is still valid
+     *
+     * @param pilotos The drivers, none of which may change while they are priced
+     * @return One result per driver, in the same order
+     */
+    public static List<PriceResult> priceAll(Collection<Piloto> pilotos) {
+        return pilotos.parallelStream().map(PriceCache::price).toList();
+    }
+
+    /**
+     * @return Lookups answered from the cache since the program started
+     */
+    public static int hits() {
+        return HITS.get();
+    }
+
+    /**
+     * @return Lookups that had to price the driver since the program started
+     */
+    public static int misses() {
+        return MISSES.get();
+    }
+
+    /**
+     * A cheap hash of everything {@link PriceCalc#price(Piloto)} reads: the races of the price
+     * window, the driver's value and the pricing settings, so results from a run with another
+     * window or other band limits are never reused
+     *
+     * @param piloto The driver
+     * @return The fingerprint
+     */
+    static long fingerprint(Piloto piloto) {
+        long hash = mix(VERSION, PriceCalc.WINDOW);
+        hash = mix(hash, Double.doubleToLongBits(PriceCalc.POOR_PPM));
+        hash = mix(hash, Double.doubleToLongBits(PriceCalc.GOOD_PPM));
+        hash = mix(hash, Double.doubleToLongBits(PriceCalc.EXCELLENT_PPM));
+        hash = mix(hash, Double.doubleToLongBits(piloto.getValue()));
+
+        RollingStats.Window window = piloto.getStats().last(PriceCalc.WINDOW);
+        hash = mix(hash, window.to() - window.from());
+        for (int i = window.from(); i < window.to(); i++) {
+            hash = mix(hash, piloto.getCircuitName(i).hashCode());
+            hash = mix(hash, piloto.getCircuitPoints(i));
+            hash = mix(hash, piloto.getCircuitValueTenths(i));
+            hash = mix(hash, piloto.getCircuitTrendTenths(i));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        // One SplitMix64 round over the running hash and the next value
+        long z = hash * 31 + value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Read the cache file the first time the cache is used. A missing or unreadable file
+     * leaves the cache empty, every driver is then priced again.
+     */
+    private static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!CACHE_FILE.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(CACHE_FILE)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                System.out.println("Ignoring price cache written by another version");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long fingerprint = in.readLong();
+                double averagePpm = in.readDouble();
+                double currentValue = in.readDouble();
+                PriceThresholds thresholds = in.readByte() == 1
+                        ? new PriceThresholds(in.readInt(), in.readInt(), in.readInt()) : null;
+                int circuitCount = in.readShort();
+                List<PriceResult.CircuitPpm> circuits = new ArrayList<>(circuitCount);
+                for (int c = 0; c < circuitCount; c++) {
+                    circuits.add(new PriceResult.CircuitPpm(in.readUTF(), in.readDouble(), in.readDouble(),
+                            in.readDouble()));
+                }
+                // Written least recently used first, so reading them in order keeps that order
+                synchronized (ENTRIES) {
+                    ENTRIES.put(new Key(name, fingerprint), new PriceResult(name, circuits, averagePpm,
+                            currentValue, thresholds));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading price cache: " + e.getMessage());
+            synchronized (ENTRIES) {
+                ENTRIES.clear();
+            }
+        }
+    }
+
+    /**
+     * Write the cache file if any result changed since it was read. The file is written next to
+     * the target and then moved over it, so a failed save never leaves half a cache behind.
+     */
+    public static synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+
+        File temp = new File(CACHE_FILE.getParentFile(), CACHE_FILE.getName() + ".tmp");
+        try {
+            CACHE_FILE.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                List<Map.Entry<Key, PriceResult>> entries;
+                synchronized (ENTRIES) {
+                    entries = new ArrayList<>(ENTRIES.entrySet());
+                }
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<Key, PriceResult> entry : entries) {
+                    PriceResult result = entry.getValue();
+                    out.writeUTF(entry.getKey().name());
+                    out.writeLong(entry.getKey().fingerprint());
+                    out.writeDouble(result.averagePpm());
+                    out.writeDouble(result.currentValue());
+                    PriceThresholds thresholds = result.thresholds();
+                    out.writeByte(thresholds == null ? 0 : 1);
+                    if (thresholds != null) {
+                        out.writeInt(thresholds.pointsToPoor());
+                        out.writeInt(thresholds.pointsToGood());
+                        out.writeInt(thresholds.pointsToExcelent());
+                    }
+                    out.writeShort(result.circuits().size());
+                    for (PriceResult.CircuitPpm circuit : result.circuits()) {
+                        out.writeUTF(circuit.name());
+                        out.writeDouble(circuit.points());
+                        out.writeDouble(circuit.raceValue());
+                        out.writeDouble(circuit.ppm());
+                    }
+                }
+            }
+            Files.move(temp.toPath(), CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Error saving price cache: " + e.getMessage());
+        }
+    }
+}
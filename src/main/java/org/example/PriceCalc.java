@@ -1,17 +1,26 @@
 package org.example;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 public class PriceCalc {
+    // Average PPM (points per million) over the last two races plus the next one for each price band
+    public static final double POOR_PPM = 0.6;
+    public static final double GOOD_PPM = 0.9;
+    public static final double EXCELLENT_PPM = 1.2;
+    // Past races averaged with the next one, e.g. -Dprice.window=3 to look further back
+    public static final int WINDOW = Math.max(1, Integer.getInteger("price.window", 2));
+
+    // Lowest points value the thresholds are searched from
+    static final int MIN_POINTS = -1000;
+    // Stops the fallback scan for inputs where the band can never be reached
+    static final int MAX_SCAN_POINTS = 100_000;
     
     /**
-     * Processes the last two entries in a Piloto's data map and extracts race points and race value
-     * for each entry. The extracted data is stored in instance variables for later use.
+     * Processes the last races in a Piloto's data, {@link #WINDOW} of them, and computes the points the
+     * next race needs for each price band. The results are printed and stored in the Piloto.
      * 
      * @param piloto The Piloto object containing the data
      */
@@ -20,145 +29,204 @@ public class PriceCalc {
             System.out.println("Error: Piloto object is null");
             return;
         }
-        
-        Map<String, String> data = piloto.getData();
-        if (data == null || data.isEmpty()) {
-            System.out.println("No data available for pilot: " + piloto.getName());
-            return;
-        }
-
-        // Get the last two entries from the LinkedHashMap
-        List<Map.Entry<String, String>> lastTwoEntries = new ArrayList<>();
-
-        // Convert to array to get last two entries
-        Map.Entry<String, String>[] entries = data.entrySet().toArray(new Map.Entry[0]);
-        int size = entries.length;
-
-        // Get last two entries or all if less than two
-        int startIndex = Math.max(0, size - 2);
-        for (int i = startIndex; i < size; i++) {
-            lastTwoEntries.add(entries[i]);
-        }
 
-        double[] PPM = new double[3];
-        int i = 0;
-
-        // Process each of the last two entries
-        for (Map.Entry<String, String> entry : lastTwoEntries) {
-            String circuitName = entry.getKey();
-            String circuitData = entry.getValue();
-            
-            // Extract race points and race value using regex
-            double[] raceData = extractRaceData(circuitData);
-            
-            if (raceData != null) {
-                double racePoints = raceData[0];
-                double raceValue = raceData[1];
-
-                double racePPM = racePoints / raceValue;
-
-                PPM[i] = racePPM;
-                
-                // Instead of returning, we process or store the data
-                System.out.println("Circuit: " + circuitName);
-                System.out.println("  Race Points: " + racePoints);
-                System.out.println("  Race Value: " + raceValue);
-                System.out.println("  Race PPM: " + racePPM);
-                // You can store this data in a database, use it for calculations, etc.
-                // For now we're just printing it
-            }
-            i++;
-        }
+        PriceResult result = price(piloto);
+        NextRacePrinter.printPriceResult(result);
+        result.applyTo(piloto);
+    }
 
-        System.out.println("Average PPM: " + (PPM[0] + PPM[1] + PPM[2])/3 );
+    /**
+     * Price a driver at their current value without printing or changing anything
+     *
+     * @param piloto The driver, which must not change while it is priced
+     * @return The thresholds and the races they are based on
+     */
+    public static PriceResult price(Piloto piloto) {
+        return price(piloto, piloto.getStats().last(WINDOW), piloto.getValue());
+    }
 
-        double poor = 0.6;
-        double good = 0.9;
-        double excellent = 1.2;
+    /**
+     * Price a driver at every one of a list of what-if values, in parallel
+     *
+     * @param piloto The driver
+     * @param values The values to price the driver at, in millions
+     * @return One result per value, in the same order
+     */
+    public static List<PriceResult> priceAtValues(Piloto piloto, double[] values) {
+        // Built once here, the parallel tasks only read it
+        RollingStats.Window window = piloto.getStats().last(WINDOW);
+        return IntStream.range(0, values.length).parallel()
+                .mapToObj(i -> price(piloto, window, values[i]))
+                .toList();
+    }
 
-        double currentValue = piloto.getValue();
+    /**
+     * Price many drivers in parallel on the common fork/join pool
+     *
+     * @param pilotos The drivers, none of which may change while they are priced
+     * @return One result per driver, in the same order
+     */
+    public static List<PriceResult> priceAll(Collection<Piloto> pilotos) {
+        return pilotos.parallelStream().map(PriceCalc::price).toList();
+    }
 
-        System.out.println("Current Value: " + currentValue);
+    /**
+     * Price the drivers of many snapshots, e.g. a whole season, in parallel. The work is split
+     * by driver rather than by snapshot, so a few large snapshots still use every core.
+     *
+     * @param snapshots The drivers of each snapshot
+     * @return The results of each snapshot, in the same order as the drivers
+     */
+    public static List<List<PriceResult>> priceSnapshots(List<List<Piloto>> snapshots) {
+        int[] starts = new int[snapshots.size() + 1];
+        List<Piloto> all = new ArrayList<>();
+        for (int i = 0; i < snapshots.size(); i++) {
+            all.addAll(snapshots.get(i));
+            starts[i + 1] = all.size();
+        }
 
-        int pointStart = -1000;
-        int pointsToPoor;
-        int pointsToGood;
-        int pointsToExcelent;
+        List<PriceResult> results = priceAll(all);
+        List<List<PriceResult>> bySnapshot = new ArrayList<>(snapshots.size());
+        for (int i = 0; i < snapshots.size(); i++) {
+            bySnapshot.add(results.subList(starts[i], starts[i + 1]));
+        }
+        return bySnapshot;
+    }
 
-        double nextRacePPM = pointStart / currentValue;
+    /**
+     * Work out every what-if of a snapshot at once: for each driver and each next-race score in
+     * the {@link PriceTable} range, the average PPM and the band it reaches, priced like {@link #price(Piloto)}
+     *
+     * @param pilotos The drivers of the snapshot, none of which may change while the table is built
+     * @return The table, answering later what-ifs without pricing again
+     */
+    public static PriceTable buildTable(List<Piloto> pilotos) {
+        int drivers = pilotos.size();
+        double[] ppmSums = new double[drivers];
+        double[] values = new double[drivers];
+        int[] thresholds = new int[drivers * 3];
+        IntStream.range(0, drivers).parallel().forEach(d -> {
+            Piloto piloto = pilotos.get(d);
+            ppmSums[d] = piloto.getStats().last(WINDOW).ppmSum();
+            values[d] = piloto.getValue();
+            PriceThresholds driverThresholds = computeThresholdsOverWindow(ppmSums[d], WINDOW, values[d]);
+            thresholds[d * 3] = driverThresholds.pointsToPoor();
+            thresholds[d * 3 + 1] = driverThresholds.pointsToGood();
+            thresholds[d * 3 + 2] = driverThresholds.pointsToExcelent();
+        });
+        return new PriceTable(pilotos, ppmSums, values, thresholds);
+    }
 
-        PPM[2] = nextRacePPM;
-        while( (PPM[0] + PPM[1] + PPM[2])/3 < poor){
-            pointStart++;
-            nextRacePPM = pointStart / currentValue;
-            PPM[2] = nextRacePPM;
-        }
-        pointsToPoor = pointStart;
-        while( (PPM[0] + PPM[1] + PPM[2])/3 < good){
-            pointStart++;
-            nextRacePPM = pointStart / currentValue;
-            PPM[2] = nextRacePPM;
+    private static PriceResult price(Piloto piloto, RollingStats.Window window, double currentValue) {
+        if (piloto.getCircuitCount() == 0) {
+            return new PriceResult(piloto.getName(), List.of(), 0, currentValue, null);
         }
-        pointsToGood = pointStart;
-        while( (PPM[0] + PPM[1] + PPM[2])/3 < excellent){
-            pointStart++;
-            nextRacePPM = pointStart / currentValue;
-            PPM[2] = nextRacePPM;
+
+        // Race value according to the formula: value + (trend * -1), or 0 when only points are known
+        List<PriceResult.CircuitPpm> circuits = new ArrayList<>(window.to() - window.from());
+        for (int index = window.from(); index < window.to(); index++) {
+            circuits.add(new PriceResult.CircuitPpm(piloto.getCircuitName(index), piloto.getCircuitPoints(index),
+                    piloto.getRaceValue(index), piloto.getStats().ppm(index)));
         }
-        pointsToExcelent = pointStart;
 
-        System.out.println("Points to Poor: " + pointsToPoor);
-        System.out.println("Points to Good: " + pointsToGood);
-        System.out.println("Points to Excelent: " + pointsToExcelent);
+        // Missing races count as 0 PPM, the next race is the last one of the average
+        double ppmSum = window.ppmSum();
+        return new PriceResult(piloto.getName(), circuits, ppmSum / (WINDOW + 1), currentValue,
+                computeThresholdsOverWindow(ppmSum, WINDOW, currentValue));
+    }
 
-        piloto.setPointsToExcelent(pointsToExcelent);
-        piloto.setPointsToGood(pointsToGood);
-        piloto.setPointsToPoor(pointsToPoor);
+    /**
+     * Computes the points the next race needs for each price band
+     *
+     * @param ppm1 PPM of the second to last race
+     * @param ppm2 PPM of the last race
+     * @param currentValue The driver's current value in millions
+     * @return The minimum points for the Poor, Good and Excellent bands
+     */
+    public static PriceThresholds computeThresholds(double ppm1, double ppm2, double currentValue) {
+        return computeThresholdsOverWindow(ppm1 + ppm2, 2, currentValue);
+    }
 
+    /**
+     * Computes the points the next race needs for each price band, averaged over any number of past races
+     *
+     * @param ppmSum Sum of the PPM of the past races
+     * @param races How many past races are averaged with the next one
+     * @param currentValue The driver's current value in millions
+     * @return The minimum points for the Poor, Good and Excellent bands
+     */
+    public static PriceThresholds computeThresholdsOverWindow(double ppmSum, int races, double currentValue) {
+        int pointsToPoor = minPointsOverWindow(ppmSum, races, currentValue, POOR_PPM, MIN_POINTS);
+        int pointsToGood = minPointsOverWindow(ppmSum, races, currentValue, GOOD_PPM, pointsToPoor);
+        int pointsToExcelent = minPointsOverWindow(ppmSum, races, currentValue, EXCELLENT_PPM, pointsToGood);
+        return new PriceThresholds(pointsToPoor, pointsToGood, pointsToExcelent);
     }
 
     /**
-     * Extracts race points and race value from a circuit data string
-     * 
-     * @param circuitData String containing circuit data in format "-16 pts | $4,5M | -0,5M"
-     * @return double array where [0] = racePoints and [1] = raceValue, or null if parsing fails
+     * Computes the minimum integer points, not below the start value, for which
+     * (ppm1 + ppm2 + points / currentValue) / 3 reaches the target average.
+     *
+     * @param ppm1 PPM of the second to last race
+     * @param ppm2 PPM of the last race
+     * @param currentValue The driver's current value in millions
+     * @param targetAverage The average PPM to reach
+     * @param start The lowest points value to consider
+     * @return The minimum points
      */
-    private static double[] extractRaceData(String circuitData) {
-        if (circuitData == null) {
-            return null;
+    public static int minPointsForAverage(double ppm1, double ppm2, double currentValue,
+                                          double targetAverage, int start) {
+        return minPointsOverWindow(ppm1 + ppm2, 2, currentValue, targetAverage, start);
+    }
+
+    /**
+     * Computes the minimum integer points, not below the start value, for which
+     * (ppmSum + points / currentValue) / (races + 1) reaches the target average.
+     * The result is solved directly and then checked with the exact same floating point
+     * expression a point-by-point search would use, so both give the same answer.
+     *
+     * @param ppmSum Sum of the PPM of the past races
+     * @param races How many past races are averaged with the next one
+     * @param currentValue The driver's current value in millions
+     * @param targetAverage The average PPM to reach
+     * @param start The lowest points value to consider
+     * @return The minimum points
+     */
+    public static int minPointsOverWindow(double ppmSum, int races, double currentValue,
+                                          double targetAverage, int start) {
+        if (!isBelow(ppmSum, races, currentValue, targetAverage, start)) {
+            return start;
+        }
+
+        if (!(currentValue > 0) || Double.isInfinite(currentValue) || !Double.isFinite(ppmSum)) {
+            // The average is not increasing with the points here, so fall back to searching
+            return scanMinPoints(ppmSum, races, currentValue, targetAverage, start);
         }
-        
-        double[] result = new double[2];
-        
-        // Pattern to extract the race points, value and trend
-        // Format example: "-16 pts | $4,5M | -0,5M"
-        Pattern pattern = Pattern.compile("([-+]?\\d+)\\s+pts\\s+\\|\\s+\\$(\\d+[,.]\\d+)M\\s+\\|\\s+([-+]?\\d+[,.]\\d+)M");
-        Matcher matcher = pattern.matcher(circuitData);
-        
-        if (matcher.find()) {
-            // Extract race points
-            result[0] = Double.parseDouble(matcher.group(1));
-            
-            // Extract value and trend, converting comma to dot if needed
-            double value = Double.parseDouble(matcher.group(2).replace(',', '.'));
-            double trend = Double.parseDouble(matcher.group(3).replace(',', '.'));
-            
-            // Calculate race value according to the formula: value + (trend * -1)
-            result[1] = value + (trend * -1);
-            
-            return result;
+
+        // points / currentValue >= (races + 1) * target - ppmSum
+        double estimate = Math.ceil(((races + 1) * targetAverage - ppmSum) * currentValue);
+        int points = (int) Math.max(start, Math.min(estimate, Integer.MAX_VALUE - 1));
+
+        // Rounding can put the estimate one step off either way
+        while (isBelow(ppmSum, races, currentValue, targetAverage, points)) {
+            points++;
         }
-        
-        // Handle older data format that might only contain points
-        Pattern simplePattern = Pattern.compile("([-+]?\\d+)\\s+pts");
-        Matcher simpleMatcher = simplePattern.matcher(circuitData);
-        
-        if (simpleMatcher.find()) {
-            result[0] = Double.parseDouble(simpleMatcher.group(1));
-            result[1] = 0; // Default value since no value/trend information is available
-            return result;
+        while (points > start && !isBelow(ppmSum, races, currentValue, targetAverage, points - 1)) {
+            points--;
         }
-        
-        return null;
+        return points;
+    }
+
+    private static int scanMinPoints(double ppmSum, int races, double currentValue,
+                                     double targetAverage, int start) {
+        int points = start;
+        while (points < MAX_SCAN_POINTS && isBelow(ppmSum, races, currentValue, targetAverage, points)) {
+            points++;
+        }
+        return points;
+    }
+
+    private static boolean isBelow(double ppmSum, int races, double currentValue, double targetAverage, int points) {
+        double nextRacePPM = points / currentValue;
+        return (ppmSum + nextRacePPM) / (races + 1) < targetAverage;
     }
-}
\ No newline at end of file
+}
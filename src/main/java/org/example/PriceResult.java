@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * What {@link PriceCalc} worked out for one driver. Nothing in it changes once built, so results
+ * can be computed on any thread and kept after the Piloto they came from is updated.
+ *
+ * @param name The driver's name
+ * @param circuits The races the price is based on, oldest first
+ * @param averagePpm Average PPM of those races and a next race of 0 points
+ * @param currentValue The value the thresholds were computed for, in millions
+ * @param thresholds Points the next race needs for each band, null when the driver has no races
+ */
+public record PriceResult(String name, List<CircuitPpm> circuits, double averagePpm, double currentValue,
+                          PriceThresholds thresholds) {
+
+    public PriceResult {
+        circuits = List.copyOf(circuits);
+    }
+
+    /**
+     * Store the thresholds in the Piloto, where the ranking and the snapshots read them
+     * @param piloto The driver this result was computed for
+     */
+    public void applyTo(Piloto piloto) {
+        if (thresholds == null) {
+            return;
+        }
+        piloto.setPointsToExcelent(thresholds.pointsToExcelent());
+        piloto.setPointsToGood(thresholds.pointsToGood());
+        piloto.setPointsToPoor(thresholds.pointsToPoor());
+    }
+
+    /**
+     * One race of the window a price is based on
+     *
+     * @param name The circuit
+     * @param points Points scored there
+     * @param raceValue Value going into the race in millions, 0 when only the points are known
+     * @param ppm Points per million
+     */
+    public record CircuitPpm(String name, double points, double raceValue, double ppm) {
+    }
+}
@@ -0,0 +1,240 @@
+package org.example;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates how likely each price outcome of the next race is. Every trial draws the next-race
+ * points of each driver from the points they scored in past races, then looks up which band of
+ * {@link PriceCalc} that score reaches and how much the driver's value changes for it.
+ * <p>
+ * The trials are split over a fork/join pool. Each leaf has its own {@link SplittableRandom}, split
+ * from its parent's, so a run is repeatable for a given seed whatever the number of cores, and
+ * only counts outcomes in primitive arrays.
+ * <p>
+ * Past results are read with {@link Piloto#getCircuitPoints(int)} rather than the rendered
+ * {@link Piloto#getData()} text.
+ */
+public class PriceSimulation {
+    // Outcomes, worst first
+    public static final int BELOW_POOR = 0;
+    public static final int POOR = 1;
+    public static final int GOOD = 2;
+    public static final int EXCELLENT = 3;
+    private static final int OUTCOMES = 4;
+
+    // Drivers worth at least this much are tier A, the same split NextRacePrinter shows
+    static final double TIER_A_VALUE = 19.0;
+    // Value change for each outcome in tenths of a million, tier A drivers move less than tier B
+    private static final int[] TIER_A_CHANGES = {-3, -1, 1, 3};
+    private static final int[] TIER_B_CHANGES = {-6, -2, 2, 6};
+
+    // Trials a fork/join task runs itself instead of splitting further
+    private static final long LEAF_TRIALS = 50_000;
+
+    private final List<Piloto> drivers = new ArrayList<>();
+    // The band every past race of a driver would reach next race, all drivers in one array:
+    // driver d owns pastOutcomes[pastStart[d]] to pastOutcomes[pastStart[d] + pastCount[d] - 1]
+    private final byte[] pastOutcomes;
+    private final int[] pastStart;
+    private final int[] pastCount;
+    private final int[][] changes;
+    private final boolean[] inTeam;
+
+    /**
+     * @param pilotos The drivers to simulate, priced by {@link PriceCalc#processLastTwoEntries(Piloto)}.
+     *                Drivers without any race are left out.
+     * @param team The drivers whose total value change is tracked, may be empty
+     */
+    public PriceSimulation(List<Piloto> pilotos, Collection<Piloto> team) {
+        for (Piloto piloto : pilotos) {
+            if (piloto.getCircuitCount() > 0) {
+                drivers.add(piloto);
+            }
+        }
+
+        int n = drivers.size();
+        pastStart = new int[n];
+        pastCount = new int[n];
+        changes = new int[n][];
+        inTeam = new boolean[n];
+        int total = 0;
+        for (int d = 0; d < n; d++) {
+            pastStart[d] = total;
+            pastCount[d] = drivers.get(d).getCircuitCount();
+            total += pastCount[d];
+        }
+
+        // Drawing a past race only matters for the band it reaches, so bands are looked up once here
+        pastOutcomes = new byte[total];
+        for (int d = 0; d < n; d++) {
+            Piloto piloto = drivers.get(d);
+            for (int i = 0; i < pastCount[d]; i++) {
+                pastOutcomes[pastStart[d] + i] = (byte) outcome(piloto.getPointsToPoor(), piloto.getPointsToGood(),
+                        piloto.getPointsToExcelent(), piloto.getCircuitPoints(i));
+            }
+            changes[d] = piloto.getCurrentValue() >= TIER_A_VALUE ? TIER_A_CHANGES : TIER_B_CHANGES;
+            inTeam[d] = team.contains(piloto);
+        }
+    }
+
+    /**
+     * Run the simulation on the common fork/join pool
+     * @param trials The number of simulated races
+     * @param seed The random seed
+     * @return The probability of every outcome per driver and the expected change of the team
+     */
+    public Result run(long trials, long seed) {
+        Tally tally = ForkJoinPool.commonPool().invoke(new Trials(this, trials, new SplittableRandom(seed)));
+
+        List<Outlook> outlooks = new ArrayList<>(drivers.size());
+        for (int d = 0; d < drivers.size(); d++) {
+            double[] probabilities = new double[OUTCOMES];
+            double expected = 0;
+            for (int o = 0; o < OUTCOMES; o++) {
+                probabilities[o] = (double) tally.counts[d * OUTCOMES + o] / trials;
+                expected += probabilities[o] * changes[d][o] / 10.0;
+            }
+            outlooks.add(new Outlook(drivers.get(d), probabilities[BELOW_POOR], probabilities[POOR],
+                    probabilities[GOOD], probabilities[EXCELLENT], expected));
+        }
+        return new Result(outlooks, trials, tally.teamTenths / 10.0 / trials, (double) tally.teamGains / trials);
+    }
+
+    /**
+     * @return The band a race of the given points reaches with these thresholds
+     */
+    static int outcome(int pointsToPoor, int pointsToGood, int pointsToExcelent, int points) {
+        if (points >= pointsToExcelent) {
+            return EXCELLENT;
+        } else if (points >= pointsToGood) {
+            return GOOD;
+        } else if (points >= pointsToPoor) {
+            return POOR;
+        }
+        return BELOW_POOR;
+    }
+
+    /**
+     * @param value The driver's value going into the race, which decides the tier
+     * @param outcome The band reached
+     * @return The value change in tenths of a million
+     */
+    static int changeTenths(double value, int outcome) {
+        return (value >= TIER_A_VALUE ? TIER_A_CHANGES : TIER_B_CHANGES)[outcome];
+    }
+
+    /**
+     * Outcome counts of a range of trials
+     */
+    private static class Tally {
+        final long[] counts;
+        long teamTenths;
+        long teamGains;
+
+        Tally(int drivers) {
+            counts = new long[drivers * OUTCOMES];
+        }
+
+        Tally add(Tally other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            teamTenths += other.teamTenths;
+            teamGains += other.teamGains;
+            return this;
+        }
+    }
+
+    /**
+     * A range of trials, split in half until it is small enough to run. Only reads the
+     * simulation's arrays, so every task of a run can share them.
+     */
+    private static class Trials extends RecursiveTask<Tally> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] pastOutcomes;
+        private final int[] pastStart;
+        private final int[] pastCount;
+        private final int[][] changes;
+        private final boolean[] inTeam;
+        private final long trials;
+        private final transient SplittableRandom random;
+
+        Trials(PriceSimulation simulation, long trials, SplittableRandom random) {
+            this(simulation.pastOutcomes, simulation.pastStart, simulation.pastCount, simulation.changes,
+                    simulation.inTeam, trials, random);
+        }
+
+        private Trials(byte[] pastOutcomes, int[] pastStart, int[] pastCount, int[][] changes, boolean[] inTeam,
+                       long trials, SplittableRandom random) {
+            this.pastOutcomes = pastOutcomes;
+            this.pastStart = pastStart;
+            this.pastCount = pastCount;
+            this.changes = changes;
+            this.inTeam = inTeam;
+            this.trials = trials;
+            this.random = random;
+        }
+
+        private Trials split(long trials) {
+            return new Trials(pastOutcomes, pastStart, pastCount, changes, inTeam, trials, random.split());
+        }
+
+        @Override
+        protected Tally compute() {
+            if (trials > LEAF_TRIALS) {
+                long half = trials / 2;
+                Trials left = split(half);
+                Trials right = split(trials - half);
+                left.fork();
+                return right.compute().add(left.join());
+            }
+
+            int n = pastStart.length;
+            Tally tally = new Tally(n);
+            long[] counts = tally.counts;
+            for (long t = 0; t < trials; t++) {
+                int team = 0;
+                for (int d = 0; d < n; d++) {
+                    int outcome = pastOutcomes[pastStart[d] + random.nextInt(pastCount[d])];
+                    counts[d * OUTCOMES + outcome]++;
+                    if (inTeam[d]) {
+                        team += changes[d][outcome];
+                    }
+                }
+                tally.teamTenths += team;
+                if (team > 0) {
+                    tally.teamGains++;
+                }
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * The simulated chances of one driver
+     *
+     * @param piloto The driver
+     * @param belowPoor Probability of scoring under the Poor threshold
+     * @param poor Probability of reaching Poor but not Good
+     * @param good Probability of reaching Good but not Excellent
+     * @param excellent Probability of reaching Excellent
+     * @param expectedChange Expected value change in millions
+     */
+    public record Outlook(Piloto piloto, double belowPoor, double poor, double good, double excellent,
+                          double expectedChange) {
+    }
+
+    /**
+     * @param drivers The outlook of every simulated driver
+     * @param trials The number of simulated races
+     * @param expectedTeamChange Expected total value change of the team in millions
+     * @param teamGainProbability Probability that the team gains value overall
+     */
+    public record Result(List<Outlook> drivers, long trials, double expectedTeamChange, double teamGainProbability) {
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * What-if answers for every driver of a snapshot, worked out once: for each next-race score from
+ * {@link #MIN_POINTS} to {@link #MAX_POINTS}, the average PPM it gives, the price band it reaches and
+ * the value change that follows. Built with {@link PriceCalc#buildTable(List)}.
+ * <p>
+ * The answers sit in flat primitive arrays, one row of {@link #WIDTH} entries per driver, so a
+ * lookup is an index calculation. Scores outside the range are computed on the spot, the same way.
+ */
+public class PriceTable {
+    // Range of next-race points stored in the table, scores outside it are computed when asked
+    public static final int MIN_POINTS = -30;
+    public static final int MAX_POINTS = 80;
+    static final int WIDTH = MAX_POINTS - MIN_POINTS + 1;
+
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final String[] names;
+    private final double[] ppmSums;
+    private final double[] values;
+    private final int[] thresholds;
+    private final double[] averagePpm;
+    private final byte[] bands;
+
+    /**
+     * @param pilotos The drivers of the snapshot
+     * @param ppmSums Sum of the PPM of each driver's window, as priced by PriceCalc
+     * @param values The value each driver was priced at, which also sets the tier of its value changes
+     * @param thresholds Poor, Good and Excellent points of each driver, three entries per driver
+     */
+    PriceTable(List<Piloto> pilotos, double[] ppmSums, double[] values, int[] thresholds) {
+        int drivers = pilotos.size();
+        this.names = new String[drivers];
+        this.ppmSums = ppmSums;
+        this.values = values;
+        this.thresholds = thresholds;
+        this.averagePpm = new double[drivers * WIDTH];
+        this.bands = new byte[drivers * WIDTH];
+
+        for (int d = 0; d < drivers; d++) {
+            Piloto piloto = pilotos.get(d);
+            names[d] = piloto.getName();
+            rows.put(piloto.getName(), d);
+        }
+
+        // Every driver fills its own row, so the rows can be filled in parallel
+        IntStream.range(0, drivers).parallel().forEach(d -> {
+            for (int i = 0; i < WIDTH; i++) {
+                averagePpm[d * WIDTH + i] = computeAveragePpm(d, MIN_POINTS + i);
+                bands[d * WIDTH + i] = (byte) computeBand(d, MIN_POINTS + i);
+            }
+        });
+    }
+
+    /**
+     * @param name The driver's full name, as shown in the ranking
+     * @return The driver's row, or -1 if the driver is not in the table
+     */
+    public int row(String name) {
+        Integer row = rows.get(name);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * @return The number of drivers
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param row The driver's row
+     * @return The driver's name
+     */
+    public String name(int row) {
+        return names[row];
+    }
+
+    /**
+     * @param row The driver's row
+     * @param points The next-race points
+     * @return The average PPM over the priced window and the next race
+     */
+    public double averagePpm(int row, int points) {
+        return inRange(points) ? averagePpm[row * WIDTH + points - MIN_POINTS] : computeAveragePpm(row, points);
+    }
+
+    /**
+     * @param row The driver's row
+     * @param points The next-race points
+     * @return The band reached, one of the PriceSimulation outcome constants
+     */
+    public int band(int row, int points) {
+        return inRange(points) ? bands[row * WIDTH + points - MIN_POINTS] : computeBand(row, points);
+    }
+
+    /**
+     * @param row The driver's row
+     * @param points The next-race points
+     * @return The value change in tenths of a million
+     */
+    public int changeTenths(int row, int points) {
+        return PriceSimulation.changeTenths(values[row], band(row, points));
+    }
+
+    private static boolean inRange(int points) {
+        return points >= MIN_POINTS && points <= MAX_POINTS;
+    }
+
+    private double computeAveragePpm(int row, int points) {
+        // The same expression PriceCalc solves the thresholds with
+        double nextRacePPM = points / values[row];
+        return (ppmSums[row] + nextRacePPM) / (PriceCalc.WINDOW + 1);
+    }
+
+    private int computeBand(int row, int points) {
+        return PriceSimulation.outcome(thresholds[row * 3], thresholds[row * 3 + 1], thresholds[row * 3 + 2], points);
+    }
+}
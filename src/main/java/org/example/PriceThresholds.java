@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * Minimum next-race points a driver needs for each price band
+ *
+ * @param pointsToPoor Points needed to reach the Poor average PPM
+ * @param pointsToGood Points needed to reach the Good average PPM
+ * @param pointsToExcelent Points needed to reach the Excellent average PPM
+ */
+public record PriceThresholds(int pointsToPoor, int pointsToGood, int pointsToExcelent) {
+}
@@ -0,0 +1,270 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Running totals over the races of one driver, so the mean, variance and trend of any window of
+ * races costs the same O(1) whatever its length. Adding a race appends one entry to each total.
+ * <p>
+ * PPM (points per million) is points divided by the value the driver had going into the race,
+ * computed exactly like {@link PriceCalc} does. Races stored with points only have no PPM and are
+ * left out of the PPM statistics, but still count for the points statistics.
+ * <p>
+ * Kept up to date by {@link Piloto} as circuits are added, see {@link Piloto#getStats()}.
+ */
+public class RollingStats {
+    // Windows up to this many races are summed race by race for ppmSum(), so the sum of the last two
+    // races adds up in exactly the same order as PriceCalc always did
+    private static final int DIRECT_SUM_RACES = 4;
+
+    private double[] ppm = new double[8];
+    private final Totals ppmTotals = new Totals();
+    private final Totals pointsTotals = new Totals();
+    private int count;
+
+    /**
+     * Build the totals for every race a driver has run
+     * @param piloto The driver
+     */
+    RollingStats(Piloto piloto) {
+        for (int i = 0; i < piloto.getCircuitCount(); i++) {
+            add(piloto, i);
+        }
+    }
+
+    /**
+     * Bring the totals up to date after a circuit was added or replaced. Adding costs O(1),
+     * replacing an older race recomputes the races from that one on.
+     * @param piloto The driver these totals belong to
+     * @param index The race that changed
+     */
+    void update(Piloto piloto, int index) {
+        count = Math.min(count, index);
+        ppmTotals.truncate(count);
+        pointsTotals.truncate(count);
+        for (int i = count; i < piloto.getCircuitCount(); i++) {
+            add(piloto, i);
+        }
+    }
+
+    private void add(Piloto piloto, int index) {
+        double racePoints = piloto.getCircuitPoints(index);
+        double racePPM = racePoints / piloto.getRaceValue(index);
+
+        if (count == ppm.length) {
+            ppm = Arrays.copyOf(ppm, count * 2);
+        }
+        ppm[count] = racePPM;
+        if (piloto.hasCircuitValue(index) && Double.isFinite(racePPM)) {
+            ppmTotals.add(count, racePPM);
+        } else {
+            ppmTotals.skip();
+        }
+        pointsTotals.add(count, racePoints);
+        count++;
+    }
+
+    /**
+     * @return The number of races
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param index The race, in race order
+     * @return Its PPM, infinite or NaN when the race has no value
+     */
+    public double ppm(int index) {
+        return ppm[index];
+    }
+
+    /**
+     * @param from The first race
+     * @param to The race after the last one
+     * @return The statistics of the races from..to-1
+     */
+    public Window window(int from, int to) {
+        if (from < 0 || to > count || from > to) {
+            throw new IndexOutOfBoundsException("Window " + from + ".." + to + " of " + count + " races");
+        }
+        return new Window(from, to);
+    }
+
+    /**
+     * @param races How many of the latest races, fewer if the driver has not run that many
+     * @return The statistics of the latest races
+     */
+    public Window last(int races) {
+        return new Window(Math.max(0, count - races), count);
+    }
+
+    /**
+     * A range of races. Every statistic is read from the totals in O(1), except
+     * {@link #ppmSum()} on short windows.
+     */
+    public class Window {
+        private final int from;
+        private final int to;
+
+        private Window(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public int from() {
+            return from;
+        }
+
+        public int to() {
+            return to;
+        }
+
+        /**
+         * @return The sum of the PPM of every race in the window, the way PriceCalc adds them:
+         *         infinite or NaN if a race without value is part of it
+         */
+        public double ppmSum() {
+            int skipped = (to - from) - ppmTotals.count(from, to);
+            if (to - from <= DIRECT_SUM_RACES || skipped > 0) {
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += ppm[i];
+                }
+                return sum;
+            }
+            return ppmTotals.sum(from, to);
+        }
+
+        /**
+         * @return The average PPM of the races with a value, 0 if there are none
+         */
+        public double meanPpm() {
+            return ppmTotals.mean(from, to);
+        }
+
+        /**
+         * @return The variance of the PPM of the races with a value
+         */
+        public double ppmVariance() {
+            return ppmTotals.variance(from, to);
+        }
+
+        /**
+         * @return How much the PPM changes per race, the slope of a straight line fit
+         */
+        public double ppmTrend() {
+            return ppmTotals.trend(from, to);
+        }
+
+        /**
+         * @return The average points per race, 0 if the window is empty
+         */
+        public double meanPoints() {
+            return pointsTotals.mean(from, to);
+        }
+
+        /**
+         * @return The variance of the points per race
+         */
+        public double pointsVariance() {
+            return pointsTotals.variance(from, to);
+        }
+
+        /**
+         * @return How much the points change per race, the slope of a straight line fit
+         */
+        public double pointsTrend() {
+            return pointsTotals.trend(from, to);
+        }
+    }
+
+    /**
+     * Totals of y, y squared and the race index x up to each race, so the least squares line
+     * of any range comes from two lookups. Races can be skipped, keeping the previous totals.
+     */
+    private static final class Totals {
+        // Entry i holds the totals of races 0..i-1
+        private int[] n = new int[9];
+        private double[] sumX = new double[9];
+        private double[] sumXX = new double[9];
+        private double[] sumY = new double[9];
+        private double[] sumYY = new double[9];
+        private double[] sumXY = new double[9];
+        private int size;
+
+        void add(int x, double y) {
+            grow();
+            n[size + 1] = n[size] + 1;
+            sumX[size + 1] = sumX[size] + x;
+            sumXX[size + 1] = sumXX[size] + (double) x * x;
+            sumY[size + 1] = sumY[size] + y;
+            sumYY[size + 1] = sumYY[size] + y * y;
+            sumXY[size + 1] = sumXY[size] + x * y;
+            size++;
+        }
+
+        void skip() {
+            grow();
+            n[size + 1] = n[size];
+            sumX[size + 1] = sumX[size];
+            sumXX[size + 1] = sumXX[size];
+            sumY[size + 1] = sumY[size];
+            sumYY[size + 1] = sumYY[size];
+            sumXY[size + 1] = sumXY[size];
+            size++;
+        }
+
+        void truncate(int races) {
+            size = Math.min(size, races);
+        }
+
+        private void grow() {
+            if (size + 1 == n.length) {
+                int capacity = n.length * 2;
+                n = Arrays.copyOf(n, capacity);
+                sumX = Arrays.copyOf(sumX, capacity);
+                sumXX = Arrays.copyOf(sumXX, capacity);
+                sumY = Arrays.copyOf(sumY, capacity);
+                sumYY = Arrays.copyOf(sumYY, capacity);
+                sumXY = Arrays.copyOf(sumXY, capacity);
+            }
+        }
+
+        int count(int from, int to) {
+            return n[to] - n[from];
+        }
+
+        double sum(int from, int to) {
+            return sumY[to] - sumY[from];
+        }
+
+        double mean(int from, int to) {
+            int count = count(from, to);
+            return count == 0 ? 0 : sum(from, to) / count;
+        }
+
+        double variance(int from, int to) {
+            int count = count(from, to);
+            if (count == 0) {
+                return 0;
+            }
+            double mean = sum(from, to) / count;
+            // Subtracting totals can leave a tiny negative number where the variance is 0
+            return Math.max(0, (sumYY[to] - sumYY[from]) / count - mean * mean);
+        }
+
+        double trend(int from, int to) {
+            int count = count(from, to);
+            double x = sumX[to] - sumX[from];
+            double xx = sumXX[to] - sumXX[from];
+            double denominator = count * xx - x * x;
+            if (count < 2 || denominator <= 0) {
+                return 0;
+            }
+            double y = sum(from, to);
+            double xy = sumXY[to] - sumXY[from];
+            return (count * xy - x * y) / denominator;
+        }
+    }
+}
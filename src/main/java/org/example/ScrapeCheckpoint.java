@@ -0,0 +1,111 @@
+package org.example;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The drivers already scraped by the current run, or by a run that was interrupted. Every pilot
+ * is saved as soon as it is scraped, so after a crash only the drivers that are left are scraped again.
+ * <p>
+ * A checkpoint opened with a {@link Listener} hands every pilot to it instead of saving it on the
+ * scraping thread, and leaves saving and clearing to the listener, see {@link ScrapePipeline}.
+ */
+public class ScrapeCheckpoint {
+    private final Map<Integer, Piloto> completed;
+    private final Listener listener;
+    private volatile boolean clearWhenSaved;
+
+    private ScrapeCheckpoint(Map<Integer, Piloto> completed, Listener listener) {
+        this.completed = completed;
+        this.listener = listener;
+    }
+
+    /**
+     * Load the pilots left by an interrupted run, if any
+     * @return The checkpoint of the new run
+     */
+    public static ScrapeCheckpoint open() {
+        return open(null);
+    }
+
+    /**
+     * Load the pilots left by an interrupted run, if any
+     * @param listener Receives every pilot of the run, resumed or scraped, or null to save them right away
+     * @return The checkpoint of the new run
+     */
+    public static ScrapeCheckpoint open(Listener listener) {
+        Map<Integer, Piloto> completed = DataManager.loadCheckpoint();
+        if (!completed.isEmpty()) {
+            System.out.println("Resuming an interrupted scrape: " + completed.size() + " drivers already scraped");
+        }
+        return new ScrapeCheckpoint(completed, listener);
+    }
+
+    /**
+     * The pilot scraped earlier for a row, if the row still shows the same data. A row whose text
+     * changed since, e.g. because a new race was added, has to be scraped again.
+     * @param row The row of the driver in the website list
+     * @param signature The current text of the row
+     * @return The saved pilot, or null if the row must be scraped
+     */
+    public Piloto completed(int row, String signature) {
+        Piloto pilot = completed.get(row);
+        if (pilot == null || signature == null || !Objects.equals(signature, pilot.getListSignature())) {
+            return null;
+        }
+        return pilot;
+    }
+
+    /**
+     * Save a pilot of this run, or pass it to the listener
+     * @param row The row of the driver in the website list
+     * @param pilot The scraped pilot, or the one returned by {@link #completed(int, String)}
+     */
+    public void record(int row, Piloto pilot) {
+        if (listener != null) {
+            listener.scraped(row, pilot);
+        } else {
+            save(row, pilot);
+        }
+    }
+
+    /**
+     * Write a pilot to the checkpoint, unless it was loaded from there
+     * @param row The row of the driver in the website list
+     * @param pilot The pilot to save
+     */
+    public void save(int row, Piloto pilot) {
+        if (completed.get(row) != pilot) {
+            DataManager.checkpointPilot(row, pilot);
+        }
+    }
+
+    /**
+     * Forget the checkpoint once every driver has been scraped. With a listener this waits for
+     * {@link #saved()}, pilots still on their way to disk would otherwise recreate it.
+     */
+    public void clear() {
+        if (listener != null) {
+            clearWhenSaved = true;
+        } else {
+            DataManager.clearCheckpoint();
+        }
+    }
+
+    /**
+     * Called by the listener once every pilot it received has been saved
+     */
+    public void saved() {
+        if (clearWhenSaved) {
+            DataManager.clearCheckpoint();
+        }
+    }
+
+    /**
+     * Receives the pilots of a run as soon as they are known
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void scraped(int row, Piloto pilot);
+    }
+}
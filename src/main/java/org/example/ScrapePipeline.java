@@ -0,0 +1,97 @@
+package org.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Prices and saves the drivers while the scraper is still opening the next popups. Every pilot
+ * handed to the checkpoint goes through a bounded queue to a pricing thread, then through a second
+ * one to a thread that writes it to the checkpoint, so the ranking is ready when the last popup closes.
+ * <p>
+ * The queues are small on purpose: a popup takes far longer than pricing or saving a driver, and
+ * if a stage ever falls behind the scraper waits instead of piling up pilots in memory.
+ */
+public class ScrapePipeline {
+    // How many pilots can wait for each stage before the scraper is held back
+    private static final int QUEUE_CAPACITY = Integer.getInteger("scraper.pipeline.queue", 8);
+    // Sent down the queues after the last pilot
+    private static final Scraped END = new Scraped(-1, null);
+
+    private final BlockingQueue<Scraped> toPricing = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Scraped> toPersistence = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ScrapeCheckpoint checkpoint;
+    private final Thread pricing;
+    private final Thread persistence;
+
+    /**
+     * Open the checkpoint of a new run and start the pricing and persistence threads
+     */
+    public ScrapePipeline() {
+        this.checkpoint = ScrapeCheckpoint.open((row, pilot) -> put(toPricing, new Scraped(row, pilot)));
+        this.pricing = new Thread(this::runPricing, "pipeline-pricing");
+        this.persistence = new Thread(this::runPersistence, "pipeline-persistence");
+        pricing.start();
+        persistence.start();
+    }
+
+    /**
+     * @return The checkpoint to scrape with, every pilot recorded in it enters the pipeline
+     */
+    public ScrapeCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Wait until every pilot recorded so far has been priced and saved, then stop the threads.
+     * Call it once the scraper is done.
+     */
+    public void finish() {
+        put(toPricing, END);
+        try {
+            pricing.join();
+            persistence.join();
+            checkpoint.saved();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runPricing() {
+        try {
+            for (Scraped scraped = toPricing.take(); scraped != END; scraped = toPricing.take()) {
+                try {
+                    System.out.println("\nAnalyzing pilot: " + scraped.pilot().getName());
+                    PriceCalc.processLastTwoEntries(scraped.pilot());
+                } catch (RuntimeException e) {
+                    // An unpriced driver is still worth saving, and the scraper must never be left waiting
+                    System.err.println("Error pricing " + scraped.pilot().getName() + ": " + e.getMessage());
+                }
+                toPersistence.put(scraped);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        put(toPersistence, END);
+    }
+
+    private void runPersistence() {
+        try {
+            for (Scraped scraped = toPersistence.take(); scraped != END; scraped = toPersistence.take()) {
+                checkpoint.save(scraped.row(), scraped.pilot());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void put(BlockingQueue<Scraped> queue, Scraped scraped) {
+        try {
+            queue.put(scraped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Scraped(int row, Piloto pilot) {
+    }
+}
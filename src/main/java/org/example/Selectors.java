@@ -0,0 +1,30 @@
+package org.example;
+
+/**
+ * Every CSS selector the scraper relies on, so a change in the website's markup is fixed in one place
+ */
+public final class Selectors {
+    private static final String POPUP = "#root > div > div.si-master__wrap > div > div";
+    private static final String PLAYER_INFO = POPUP + " > div.si-popup__body > div.si-driCon__playerInfo";
+
+    // The container of the driver list, its first UL holds one LI per driver after a header row
+    public static final String DRIVER_LIST =
+            "#root > div > div.si-master__wrap > section.si-stats__wrap > div:nth-child(2) > div > div > div > div.si-stats__tracker-grid-rhs > div > div";
+    public static final String ROW_TEAM = "div.si-stats__list-item.teamname";
+
+    public static final String POPUP_BODY = ".si-popup__body";
+    public static final String POPUP_CLOSE = POPUP + " > div.si-popup__close";
+    public static final String PLAYER_NAME = PLAYER_INFO + " > div.si-player__name";
+    public static final String POPUP_TEAM = ".si-player__team";
+    // Value on the first line and trend on the second, the direction is a class: si-up, si-down or false
+    public static final String TRENDS = PLAYER_INFO + " > div.si-player__trends";
+
+    public static final String PERFORMANCE_LIST = ".si-performance__list";
+    // Accordions have the ids accordion0, accordion1... in circuit order
+    public static final String ACCORDION_ID_PREFIX = "accordion";
+    public static final String ACCORDION_NAME = "h3";
+    public static final String ACCORDION_POINTS = ".si-totalPts__counts";
+
+    private Selectors() {
+    }
+}
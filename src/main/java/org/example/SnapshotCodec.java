@@ -0,0 +1,266 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary snapshot format for a list of pilots.
+ *
+ * <pre>
+ * int    magic "F1SN"
+ * short  format version
+ * int    number of circuit names, then each name as a string
+ * int    number of pilots, then for each pilot:
+ *   int    length of the pilot record in bytes (so readers can skip it)
+ *   string name, string list signature (length -1 when null)
+ *   double value, int pointsToPoor, int pointsToGood, int pointsToExcelent
+ *   short  number of circuits, then four short columns of that length:
+ *          circuit name index, points, value and trend in tenths of a million
+ * </pre>
+ * Strings are a short byte length followed by UTF-8 bytes. Values are big-endian.
+ */
+public class SnapshotCodec {
+    private static final int MAGIC = 0x4631534E; // "F1SN"
+    static final short VERSION = 1;
+    private static final short NULL_STRING = -1;
+
+    /**
+     * Write the pilots to a snapshot file. The file is written next to the target and then
+     * moved over it, so a failed save never leaves a half-written snapshot behind.
+     * @param pilots The pilots to write
+     * @param file The snapshot file
+     */
+    public static void write(List<Piloto> pilots, Path file) throws IOException {
+        ByteBuffer buffer = encode(pilots);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the pilots from a snapshot file. The file is read into memory rather than mapped,
+     * a mapping would keep it locked on Windows and the next save could not replace it.
+     * @param file The snapshot file
+     * @return The pilots in the order they were written
+     */
+    public static List<Piloto> read(Path file) throws IOException {
+        return decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Encode the pilots into a buffer ready to be written
+     * @param pilots The pilots to encode
+     * @return A buffer positioned at 0 with the whole snapshot
+     */
+    static ByteBuffer encode(List<Piloto> pilots) {
+        // Collect every circuit name once, in first-seen order
+        Map<String, Integer> circuitIndexes = new LinkedHashMap<>();
+        for (Piloto piloto : pilots) {
+            for (int i = 0; i < piloto.getCircuitCount(); i++) {
+                circuitIndexes.putIfAbsent(piloto.getCircuitName(i), circuitIndexes.size());
+            }
+        }
+
+        byte[][] circuitNames = new byte[circuitIndexes.size()][];
+        int size = 4 + 2 + 4 + 4;
+        int n = 0;
+        for (String circuit : circuitIndexes.keySet()) {
+            circuitNames[n] = utf8(circuit);
+            size += 2 + circuitNames[n].length;
+            n++;
+        }
+
+        byte[][] names = new byte[pilots.size()][];
+        byte[][] signatures = new byte[pilots.size()][];
+        int[] recordSizes = new int[pilots.size()];
+        for (int p = 0; p < pilots.size(); p++) {
+            Piloto piloto = pilots.get(p);
+            names[p] = utf8(piloto.getName());
+            signatures[p] = piloto.getListSignature() == null ? null : utf8(piloto.getListSignature());
+            recordSizes[p] = 2 + names[p].length
+                    + 2 + (signatures[p] == null ? 0 : signatures[p].length)
+                    + 8 + 4 + 4 + 4
+                    + 2 + piloto.getCircuitCount() * 4 * 2;
+            size += 4 + recordSizes[p];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+
+        buffer.putInt(circuitNames.length);
+        for (byte[] circuit : circuitNames) {
+            putString(buffer, circuit);
+        }
+
+        buffer.putInt(pilots.size());
+        for (int p = 0; p < pilots.size(); p++) {
+            Piloto piloto = pilots.get(p);
+            buffer.putInt(recordSizes[p]);
+            putString(buffer, names[p]);
+            putString(buffer, signatures[p]);
+            buffer.putDouble(piloto.getValue());
+            buffer.putInt(piloto.getPointsToPoor());
+            buffer.putInt(piloto.getPointsToGood());
+            buffer.putInt(piloto.getPointsToExcelent());
+
+            int count = piloto.getCircuitCount();
+            buffer.putShort(toShort(count, "circuit count"));
+            for (int i = 0; i < count; i++) {
+                buffer.putShort(toShort(circuitIndexes.get(piloto.getCircuitName(i)), "circuit index"));
+            }
+            for (int i = 0; i < count; i++) {
+                buffer.putShort(toShort(piloto.getCircuitPoints(i), "points"));
+            }
+            for (int i = 0; i < count; i++) {
+                int valueTenths = piloto.getCircuitValueTenths(i);
+                buffer.putShort(valueTenths == Piloto.NO_VALUE ? Short.MIN_VALUE : toShort(valueTenths, "value"));
+            }
+            for (int i = 0; i < count; i++) {
+                buffer.putShort(toShort(piloto.getCircuitTrendTenths(i), "trend"));
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode a snapshot from a buffer positioned at its first byte. A truncated or damaged snapshot
+     * throws an IOException rather than a runtime exception.
+     * @param buffer The snapshot bytes
+     * @return The pilots in the order they were written
+     */
+    static List<Piloto> decode(ByteBuffer buffer) throws IOException {
+        try {
+            return decodeChecked(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // A field or record running past the end of a truncated file
+            throw new IOException("Corrupt snapshot: " + e, e);
+        }
+    }
+
+    private static List<Piloto> decodeChecked(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a pilots snapshot file");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+
+        // Every count read from the file is checked against the bytes left before it sizes an array
+        String[] circuitNames = new String[checkCount(buffer, buffer.getInt(), 2, "circuit names")];
+        for (int i = 0; i < circuitNames.length; i++) {
+            circuitNames[i] = getString(buffer);
+        }
+
+        int pilotCount = checkCount(buffer, buffer.getInt(), 4, "pilots");
+        List<Piloto> pilots = new ArrayList<>(pilotCount);
+        for (int p = 0; p < pilotCount; p++) {
+            int recordEnd = checkCount(buffer, buffer.getInt(), 1, "pilot record bytes") + buffer.position();
+
+            Piloto piloto = new Piloto(getString(buffer));
+            piloto.setListSignature(getString(buffer));
+            piloto.setValue(buffer.getDouble());
+            piloto.setPointsToPoor(buffer.getInt());
+            piloto.setPointsToGood(buffer.getInt());
+            piloto.setPointsToExcelent(buffer.getInt());
+
+            int count = checkCount(buffer, buffer.getShort(), 8, "circuits");
+            String[] names = new String[count];
+            int[] points = new int[count];
+            int[] values = new int[count];
+            int[] trends = new int[count];
+            for (int i = 0; i < count; i++) {
+                short name = buffer.getShort();
+                if (name < 0 || name >= circuitNames.length) {
+                    throw new IOException("Corrupt snapshot: circuit name " + name + " of " + circuitNames.length);
+                }
+                names[i] = circuitNames[name];
+            }
+            for (int i = 0; i < count; i++) {
+                points[i] = buffer.getShort();
+            }
+            for (int i = 0; i < count; i++) {
+                short value = buffer.getShort();
+                values[i] = value == Short.MIN_VALUE ? Piloto.NO_VALUE : value;
+            }
+            for (int i = 0; i < count; i++) {
+                trends[i] = buffer.getShort();
+            }
+            piloto.setCircuits(names, points, values, trends, count);
+
+            // Continue from the record length as written, not from what the columns above consumed
+            buffer.position(recordEnd);
+            pilots.add(piloto);
+        }
+        return pilots;
+    }
+
+    /**
+     * @param count A number of items read from the snapshot
+     * @param bytesEach The fewest bytes one item takes
+     * @return The count, if that many items fit in the bytes left
+     */
+    private static int checkCount(ByteBuffer buffer, int count, int bytesEach, String field) throws IOException {
+        if (count < 0 || (long) count * bytesEach > buffer.remaining()) {
+            throw new IOException("Corrupt snapshot: " + count + " " + field + " with " + buffer.remaining()
+                    + " bytes left");
+        }
+        return count;
+    }
+
+    static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort(NULL_STRING);
+            return;
+        }
+        buffer.putShort(toShort(bytes.length, "string length"));
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #putString(ByteBuffer, byte[])}
+     * @throws IndexOutOfBoundsException If the length is negative or runs past the end of the buffer
+     */
+    static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IndexOutOfBoundsException("String of " + length + " bytes with " + buffer.remaining()
+                    + " bytes left");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static short toShort(int value, String field) {
+        if (value < Short.MIN_VALUE + 1 || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot " + field + " out of range: " + value);
+        }
+        return (short) value;
+    }
+}
@@ -0,0 +1,521 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * History of saved pilot lists, kept as segments. Each segment is a base snapshot
+ * (base-NNNNNN.f1s, see {@link SnapshotCodec}) plus an append-only journal
+ * (journal-NNNNNN.log) with the changes saved since that base. A save only appends the
+ * difference with the previous state, and after enough saves the current state is compacted
+ * into the base of a new segment. Old segments are kept, so every saved state can be loaded again.
+ *
+ * <p>Journal records are an int length, a type byte and the payload. Records only take effect
+ * at the COMMIT record that closes a save, so a save cut short by a crash is ignored.
+ */
+public class SnapshotStore {
+    private static final byte PILOT = 1;          // name, signature, value, thresholds
+    private static final byte CIRCUIT = 2;        // name, circuit, points, value and trend tenths
+    private static final byte CLEAR_CIRCUITS = 3; // name
+    private static final byte REMOVE = 4;         // name
+    private static final byte ORDER = 5;          // count, names
+    private static final byte COMMIT = 6;         // timestamp, label
+
+    // Start a new segment once the journal holds this many saves or records
+    private static final int COMPACT_AFTER_COMMITS = 20;
+    private static final int COMPACT_AFTER_RECORDS = 2000;
+
+    private final File directory;
+    private int segment;
+    private int commitsInJournal;
+    private int recordsInJournal;
+    // State after the last commit, with its own Piloto copies
+    private LinkedHashMap<String, Piloto> head;
+
+    /**
+     * Open the store, creating the directory if needed
+     * @param directory The directory holding the segments
+     */
+    public SnapshotStore(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create snapshot store at " + directory);
+        }
+        openLatestSegment();
+    }
+
+    /**
+     * A saved state that can be loaded again
+     * @param segment The segment it was saved in
+     * @param timestamp When it was saved
+     * @param label The name given to it, usually the last race in the data
+     */
+    public record Commit(int segment, Instant timestamp, String label) {
+    }
+
+    /**
+     * @return true if nothing has been saved in the store yet
+     */
+    public synchronized boolean isEmpty() {
+        return head.isEmpty();
+    }
+
+    /**
+     * Save the pilots, appending only what changed since the previous save
+     * @param pilots The current list of pilots
+     * @param label A name for this state, e.g. the last race
+     * @return The number of records written, including the closing commit
+     */
+    public synchronized int commit(List<Piloto> pilots, String label) throws IOException {
+        List<ByteBuffer> records = diff(head, pilots);
+        records.add(commitRecord(Instant.now(), label));
+
+        try (FileChannel channel = FileChannel.open(journalPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (ByteBuffer record : records) {
+                ByteBuffer framed = frame(record);
+                while (framed.hasRemaining()) {
+                    channel.write(framed);
+                }
+            }
+            channel.force(false);
+        }
+
+        // Apply the very same records to the head, so it matches what a replay would give
+        for (ByteBuffer record : records) {
+            apply(head, record.rewind());
+        }
+        commitsInJournal++;
+        recordsInJournal += records.size();
+
+        if (commitsInJournal >= COMPACT_AFTER_COMMITS || recordsInJournal >= COMPACT_AFTER_RECORDS) {
+            compact();
+        }
+        return records.size();
+    }
+
+    /**
+     * Write the current state as the base of a new segment and start an empty journal
+     */
+    public synchronized void compact() throws IOException {
+        int next = segment + 1;
+        SnapshotCodec.write(new ArrayList<>(head.values()), basePath(next));
+        Files.write(journalPath(next), new byte[0]);
+        segment = next;
+        commitsInJournal = 0;
+        recordsInJournal = 0;
+        System.out.println("Compacted snapshot store into segment " + next);
+    }
+
+    /**
+     * @return Copies of the pilots as of the last save
+     */
+    public synchronized List<Piloto> loadLatest() {
+        return copy(head.values());
+    }
+
+    /**
+     * Load the state as it was at the given time
+     * @param timestamp The moment to go back to
+     * @return The pilots of the last save at or before that time, or null if there is none
+     */
+    public synchronized List<Piloto> loadAt(Instant timestamp) throws IOException {
+        Commit match = null;
+        for (Commit commit : listCommits()) {
+            if (!commit.timestamp().isAfter(timestamp)) {
+                match = commit;
+            }
+        }
+        return match == null ? null : load(match);
+    }
+
+    /**
+     * Load the most recent state saved under the given label
+     * @param label The label, compared ignoring case
+     * @return The pilots of that save, or null if no save has that label
+     */
+    public synchronized List<Piloto> loadByLabel(String label) throws IOException {
+        Commit match = null;
+        for (Commit commit : listCommits()) {
+            if (commit.label().equalsIgnoreCase(label)) {
+                match = commit;
+            }
+        }
+        return match == null ? null : load(match);
+    }
+
+    /**
+     * @return Every save in the store, oldest first
+     */
+    public synchronized List<Commit> listCommits() {
+        List<Commit> commits = new ArrayList<>();
+        for (int s : segments()) {
+            try {
+                replay(s, null, commits);
+            } catch (IOException e) {
+                System.err.println("Error reading journal " + s + ": " + e.getMessage());
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Load every saved state. Each segment is read once, and the segments are read in parallel.
+     * @return The pilots of every save, oldest first
+     */
+    public synchronized LinkedHashMap<Commit, List<Piloto>> loadEverySave() {
+        List<Map<Commit, List<Piloto>>> bySegment = segments().parallelStream().map(s -> {
+            Map<Commit, List<Piloto>> states = new LinkedHashMap<>();
+            try {
+                replay(s, null, new ArrayList<>(), states);
+            } catch (IOException e) {
+                System.err.println("Error reading journal " + s + ": " + e.getMessage());
+            }
+            return states;
+        }).toList();
+
+        LinkedHashMap<Commit, List<Piloto>> saves = new LinkedHashMap<>();
+        bySegment.forEach(saves::putAll);
+        return saves;
+    }
+
+    private List<Piloto> load(Commit commit) throws IOException {
+        return copy(replay(commit.segment(), commit, new ArrayList<>()).state().values());
+    }
+
+    private void openLatestSegment() throws IOException {
+        List<Integer> segments = segments();
+        if (segments.isEmpty()) {
+            segment = 1;
+            SnapshotCodec.write(new ArrayList<>(), basePath(segment));
+            Files.write(journalPath(segment), new byte[0]);
+        } else {
+            segment = segments.get(segments.size() - 1);
+        }
+
+        List<Commit> commits = new ArrayList<>();
+        Replay replay = replay(segment, null, commits);
+        head = replay.state();
+        commitsInJournal = commits.size();
+        recordsInJournal = replay.records();
+
+        // Drop a save that was cut short, so the next append starts on a record boundary
+        Path journal = journalPath(segment);
+        if (Files.exists(journal) && Files.size(journal) > replay.committedEnd()) {
+            System.out.println("Dropping an unfinished save from " + journal.getFileName());
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.truncate(replay.committedEnd());
+            }
+        }
+    }
+
+    /**
+     * Result of reading a segment
+     * @param state The pilots after the last commit read
+     * @param records The number of complete records read
+     * @param committedEnd The journal offset just after the last commit read
+     */
+    private record Replay(LinkedHashMap<String, Piloto> state, int records, long committedEnd) {
+    }
+
+    /**
+     * Rebuild the state of a segment from its base and journal
+     * @param segment The segment to read
+     * @param stopAt Stop after this commit, or null to read the whole journal
+     * @param commits Receives every commit read
+     * @return The state after the last commit read
+     */
+    private Replay replay(int segment, Commit stopAt, List<Commit> commits) throws IOException {
+        return replay(segment, stopAt, commits, null);
+    }
+
+    /**
+     * Rebuild the state of a segment from its base and journal
+     * @param segment The segment to read
+     * @param stopAt Stop after this commit, or null to read the whole journal
+     * @param commits Receives every commit read
+     * @param states Receives a copy of the pilots at every commit read, or null
+     * @return The state after the last commit read
+     */
+    private Replay replay(int segment, Commit stopAt, List<Commit> commits,
+                          Map<Commit, List<Piloto>> states) throws IOException {
+        LinkedHashMap<String, Piloto> state = new LinkedHashMap<>();
+        for (Piloto piloto : SnapshotCodec.read(basePath(segment))) {
+            state.put(piloto.getName(), piloto);
+        }
+
+        Path journal = journalPath(segment);
+        if (!Files.exists(journal)) {
+            return new Replay(state, 0, 0);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journal));
+        List<ByteBuffer> pending = new ArrayList<>();
+        long committedEnd = 0;
+        int records = 0;
+        try {
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                records++;
+
+                if (record.get(0) != COMMIT) {
+                    pending.add(record);
+                    continue;
+                }
+
+                for (ByteBuffer change : pending) {
+                    apply(state, change);
+                }
+                pending.clear();
+                committedEnd = buffer.position();
+
+                record.get();
+                Commit commit = new Commit(segment, Instant.ofEpochMilli(record.getLong()),
+                        SnapshotCodec.getString(record));
+                commits.add(commit);
+                if (states != null) {
+                    states.put(commit, copy(state.values()));
+                }
+                if (commit.equals(stopAt)) {
+                    break;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.err.println("Ignoring damaged end of journal " + journal.getFileName());
+        }
+
+        return new Replay(state, records, committedEnd);
+    }
+
+    /**
+     * Build the records that turn the previous state into the current list
+     */
+    private static List<ByteBuffer> diff(Map<String, Piloto> previous, List<Piloto> pilots) {
+        List<ByteBuffer> records = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+
+        for (Piloto piloto : pilots) {
+            names.add(piloto.getName());
+            Piloto old = previous.get(piloto.getName());
+
+            if (old == null || !sameScalars(old, piloto)) {
+                records.add(pilotRecord(piloto));
+            }
+
+            int from = 0;
+            if (old != null) {
+                if (isPrefix(old, piloto)) {
+                    // Only circuits that changed in place or are new need to be written
+                    for (int i = 0; i < old.getCircuitCount(); i++) {
+                        if (!sameCircuit(old, piloto, i)) {
+                            records.add(circuitRecord(piloto, i));
+                        }
+                    }
+                    from = old.getCircuitCount();
+                } else if (old.getCircuitCount() > 0) {
+                    records.add(nameRecord(CLEAR_CIRCUITS, piloto.getName()));
+                }
+            }
+            for (int i = from; i < piloto.getCircuitCount(); i++) {
+                records.add(circuitRecord(piloto, i));
+            }
+        }
+
+        for (String name : previous.keySet()) {
+            if (!names.contains(name)) {
+                records.add(nameRecord(REMOVE, name));
+            }
+        }
+
+        // Replaying keeps known pilots in place and appends new ones, write the order if that is wrong
+        List<String> replayedOrder = new ArrayList<>(previous.keySet());
+        replayedOrder.retainAll(names);
+        for (String name : names) {
+            if (!previous.containsKey(name)) {
+                replayedOrder.add(name);
+            }
+        }
+        if (!replayedOrder.equals(new ArrayList<>(names))) {
+            records.add(orderRecord(names));
+        }
+        return records;
+    }
+
+    private static boolean sameScalars(Piloto a, Piloto b) {
+        return Double.compare(a.getValue(), b.getValue()) == 0
+                && a.getPointsToPoor() == b.getPointsToPoor()
+                && a.getPointsToGood() == b.getPointsToGood()
+                && a.getPointsToExcelent() == b.getPointsToExcelent()
+                && Objects.equals(a.getListSignature(), b.getListSignature());
+    }
+
+    private static boolean isPrefix(Piloto old, Piloto piloto) {
+        if (old.getCircuitCount() > piloto.getCircuitCount()) {
+            return false;
+        }
+        for (int i = 0; i < old.getCircuitCount(); i++) {
+            if (!old.getCircuitName(i).equals(piloto.getCircuitName(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameCircuit(Piloto a, Piloto b, int i) {
+        return a.getCircuitPoints(i) == b.getCircuitPoints(i)
+                && a.getCircuitValueTenths(i) == b.getCircuitValueTenths(i)
+                && a.getCircuitTrendTenths(i) == b.getCircuitTrendTenths(i);
+    }
+
+    private static void apply(Map<String, Piloto> state, ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case PILOT -> {
+                String name = SnapshotCodec.getString(record);
+                Piloto piloto = state.computeIfAbsent(name, Piloto::new);
+                piloto.setListSignature(SnapshotCodec.getString(record));
+                piloto.setValue(record.getDouble());
+                piloto.setPointsToPoor(record.getInt());
+                piloto.setPointsToGood(record.getInt());
+                piloto.setPointsToExcelent(record.getInt());
+            }
+            case CIRCUIT -> {
+                Piloto piloto = state.computeIfAbsent(SnapshotCodec.getString(record), Piloto::new);
+                piloto.putCircuit(SnapshotCodec.getString(record), record.getInt(), record.getInt(), record.getInt());
+            }
+            case CLEAR_CIRCUITS -> {
+                Piloto piloto = state.get(SnapshotCodec.getString(record));
+                if (piloto != null) {
+                    piloto.setCircuits(new String[0], new int[0], new int[0], new int[0], 0);
+                }
+            }
+            case REMOVE -> state.remove(SnapshotCodec.getString(record));
+            case ORDER -> {
+                int count = record.getInt();
+                LinkedHashMap<String, Piloto> ordered = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String name = SnapshotCodec.getString(record);
+                    if (state.containsKey(name)) {
+                        ordered.put(name, state.get(name));
+                    }
+                }
+                ordered.putAll(state);
+                state.clear();
+                state.putAll(ordered);
+            }
+            case COMMIT -> {
+                // Only marks the end of a save
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static ByteBuffer pilotRecord(Piloto piloto) {
+        byte[] name = SnapshotCodec.utf8(piloto.getName());
+        byte[] signature = piloto.getListSignature() == null ? null : SnapshotCodec.utf8(piloto.getListSignature());
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + name.length + 2 + (signature == null ? 0 : signature.length) + 8 + 12);
+        record.put(PILOT);
+        SnapshotCodec.putString(record, name);
+        SnapshotCodec.putString(record, signature);
+        record.putDouble(piloto.getValue());
+        record.putInt(piloto.getPointsToPoor());
+        record.putInt(piloto.getPointsToGood());
+        record.putInt(piloto.getPointsToExcelent());
+        return record.flip();
+    }
+
+    private static ByteBuffer circuitRecord(Piloto piloto, int index) {
+        byte[] name = SnapshotCodec.utf8(piloto.getName());
+        byte[] circuit = SnapshotCodec.utf8(piloto.getCircuitName(index));
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + name.length + 2 + circuit.length + 12);
+        record.put(CIRCUIT);
+        SnapshotCodec.putString(record, name);
+        SnapshotCodec.putString(record, circuit);
+        record.putInt(piloto.getCircuitPoints(index));
+        record.putInt(piloto.getCircuitValueTenths(index));
+        record.putInt(piloto.getCircuitTrendTenths(index));
+        return record.flip();
+    }
+
+    private static ByteBuffer nameRecord(byte type, String pilotName) {
+        byte[] name = SnapshotCodec.utf8(pilotName);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + name.length);
+        record.put(type);
+        SnapshotCodec.putString(record, name);
+        return record.flip();
+    }
+
+    private static ByteBuffer orderRecord(Collection<String> names) {
+        List<byte[]> encoded = new ArrayList<>();
+        int size = 1 + 4;
+        for (String name : names) {
+            byte[] bytes = SnapshotCodec.utf8(name);
+            encoded.add(bytes);
+            size += 2 + bytes.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.put(ORDER);
+        record.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            SnapshotCodec.putString(record, bytes);
+        }
+        return record.flip();
+    }
+
+    private static ByteBuffer commitRecord(Instant timestamp, String label) {
+        byte[] text = SnapshotCodec.utf8(label == null ? "" : label);
+        ByteBuffer record = ByteBuffer.allocate(1 + 8 + 2 + text.length);
+        record.put(COMMIT);
+        record.putLong(timestamp.toEpochMilli());
+        SnapshotCodec.putString(record, text);
+        return record.flip();
+    }
+
+    private static ByteBuffer frame(ByteBuffer record) {
+        ByteBuffer framed = ByteBuffer.allocate(4 + record.remaining());
+        framed.putInt(record.remaining());
+        framed.put(record.duplicate());
+        return framed.flip();
+    }
+
+    private static List<Piloto> copy(Collection<Piloto> pilots) {
+        try {
+            return SnapshotCodec.decode(SnapshotCodec.encode(new ArrayList<>(pilots)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not copy pilots", e);
+        }
+    }
+
+    private List<Integer> segments() {
+        List<Integer> segments = new ArrayList<>();
+        String[] names = directory.list((dir, name) -> name.matches("base-\\d{6}\\.f1s"));
+        if (names != null) {
+            for (String name : names) {
+                segments.add(Integer.parseInt(name.substring(5, 11)));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path basePath(int segment) {
+        return new File(directory, String.format("base-%06d.f1s", segment)).toPath();
+    }
+
+    private Path journalPath(int segment) {
+        return new File(directory, String.format("journal-%06d.log", segment)).toPath();
+    }
+}
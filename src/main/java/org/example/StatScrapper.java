@@ -1,6 +1,6 @@
 package org.example;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.jsoup.nodes.Element;
 import org.openqa.selenium.*;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.edge.EdgeDriver;
@@ -8,36 +8,176 @@ import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.*;
 
 public class StatScrapper {
+    // Can point at a local stub server, e.g. -Dscraper.url=http://localhost:8080/stats.html
+    static final String STATS_URL = System.getProperty("scraper.url",
+            "https://fantasy.formula1.com/en/statistics/details?tab=driver&filter=fAvg");
+    // Per-driver stats feed, fetched from the page when the list feeds carry no circuit results
+    private static final String PLAYER_STATS_URL = System.getProperty("scraper.feed.playerStatsUrl",
+            "/feeds/popup/playerstats_{id}.json");
+    // The elements read from a page snapshot, whose text must be taken as the browser renders it
+    private static final String[] SNAPSHOT_TEXT_SELECTORS = {Selectors.PLAYER_NAME, Selectors.TRENDS,
+            Selectors.POPUP_TEAM, Selectors.ROW_TEAM, "[id^=" + Selectors.ACCORDION_ID_PREFIX + "] " + Selectors.ACCORDION_NAME,
+            "[id^=" + Selectors.ACCORDION_ID_PREFIX + "] " + Selectors.ACCORDION_POINTS};
+    // Set -Dscraper.extraction=elements to read every popup field with its own WebDriver call
+    private static final boolean SNAPSHOT_EXTRACTION =
+            !"elements".equals(System.getProperty("scraper.extraction", "snapshot"));
+    // Reads every accordion of the open popup in one call, as [[league, points text], ...]
+    private static final String ACCORDION_SCRIPT =
+            "var rows = [];" +
+            "for (var i = 0; ; i++) {" +
+            "  var accordion = document.getElementById(arguments[0] + i);" +
+            "  if (!accordion) break;" +
+            "  var h3 = accordion.querySelector(arguments[1]);" +
+            "  var points = accordion.querySelector(arguments[2]);" +
+            "  rows.push([h3 ? h3.innerText.trim() : 'Unknown', points ? points.innerText.trim() : '0']);" +
+            "}" +
+            "return rows;";
+    // Reads the text of every driver row (name, team, fAvg, points...) in one call
+    private static final String ROW_SIGNATURE_SCRIPT =
+            "return Array.prototype.map.call(arguments[0].querySelectorAll('li')," +
+            "  function (li) { return li.innerText.replace(/\\s+/g, ' ').trim(); });";
+    // Set -Dscraper.update.full=true to open every popup in option 2, even for unchanged rows
+    private static final boolean FULL_UPDATE = Boolean.getBoolean("scraper.update.full");
+    // How long the driver list must stay unchanged before it counts as rendered
+    private static final long LIST_QUIET_MILLIS = 150;
+    // Run the browser without a window, e.g. -Dscraper.headless=true on a server or against fixtures
+    private static final boolean HEADLESS = Boolean.getBoolean("scraper.headless");
+    // Where the browser profiles are kept, sessions of a pool add "-N" to it
+    private static final String PROFILE_DIRECTORY = System.getProperty("scraper.profile",
+            Paths.get(System.getProperty("user.home"), "selenium-edge-profile").toString());
+    // Edge executable to use when it is not installed in the default place, e.g. /usr/bin/microsoft-edge
+    private static final String BROWSER_BINARY = System.getProperty("scraper.browser.binary");
+    // Images, fonts and trackers the browser does not download, none unless -Dscraper.block opts in (see ResourceFilter)
+    private static final ResourceFilter RESOURCE_FILTER = ResourceFilter.fromSystemProperties();
+    // Extra attempts for a driver whose popup could not be read, e.g. -Dscraper.retries=2
+    private static final int RETRIES = Integer.getInteger("scraper.retries", 2);
+    // Wait before the first retry, doubled for each one after it
+    private static final long RETRY_BACKOFF_MILLIS = Long.getLong("scraper.retry.backoff", 1000);
+    // Use the browsers of a running BrowserDaemon instead of starting one, e.g. -Dscraper.attach=localhost:9222
+    private static final String ATTACH_ADDRESS = System.getProperty("scraper.attach");
+    // How old, in seconds, a page left open in an attached browser may be and still be reused
+    private static final long ATTACHED_PAGE_MAX_AGE = Long.getLong("scraper.attach.maxAge", 300);
+    // Tells whether the page in an attached browser can be scraped as it is: [url, age in ms, list present, popup open]
+    private static final String LOADED_PAGE_SCRIPT =
+            "return [location.href, Math.round(performance.now())," +
+            "  document.querySelector(arguments[0]) !== null, document.querySelector(arguments[1]) !== null];";
+    // Copies the page without anything that would reach the network when it is replayed
+    private static final String PAGE_FIXTURE_SCRIPT =
+            "var copy = document.documentElement.cloneNode(true);" +
+            "copy.querySelectorAll('script, link, iframe, noscript').forEach(function (el) { el.remove(); });" +
+            "copy.querySelectorAll('[src], [srcset]').forEach(function (el) {" +
+            "  el.removeAttribute('src'); el.removeAttribute('srcset');" +
+            "});" +
+            "return '<!DOCTYPE html>\n' + copy.outerHTML;";
+
     private WebDriver driver;
     private WebDriverWait wait;
+    private DomWaits domWaits;
+    private TrendLookup trendLookup;
+    private boolean attached;
+    private List<WebElement> driverRows = new ArrayList<>();
+    private List<String> rowSignatures = new ArrayList<>();
 
     /**
      * Constructor - initializes the WebDriver with specified options
      */
     public StatScrapper() {
-        // Setup Edge WebDriver
-        WebDriverManager.edgedriver().setup();
+        this(0);
+    }
+
+    /**
+     * Constructor for one session of a {@link StatScrapperPool}. Each session needs its own
+     * profile directory because Edge locks the user-data-dir of a running browser.
+     * @param session The session number, 0 for the default profile
+     */
+    public StatScrapper(int session) {
+        this(session, 0);
+    }
+
+    /**
+     * Constructor for a browser that other runs can attach to, see {@link BrowserDaemon}
+     * @param session The session number, 0 for the default profile
+     * @param debuggingPort The DevTools port to open, 0 for none
+     */
+    StatScrapper(int session, int debuggingPort) {
+        // Setup Edge WebDriver, resolved once and then taken from the cache
+        DriverCache.setup();
 
         // Configure Edge options
         EdgeOptions options = new EdgeOptions();
+        this.attached = ATTACH_ADDRESS != null && debuggingPort == 0;
+
+        if (attached) {
+            // The browser is already running with its profile and options, only connect to it
+            String address = attachAddress(session);
+            options.setExperimentalOption("debuggerAddress", address);
+            System.out.println("Attaching to the browser at: " + address);
+        } else {
+            // Create a dedicated profile directory for Selenium
+            String profilePath = PROFILE_DIRECTORY;
+            if (session > 0) {
+                profilePath = profilePath + "-" + session;
+            }
+            options.addArguments("user-data-dir=" + profilePath);
 
-        // Create a dedicated profile directory for Selenium
-        String userHome = System.getProperty("user.home");
-        String profilePath = userHome + "\\selenium-edge-profile";
-        options.addArguments("user-data-dir=" + profilePath);
+            System.out.println("Using Edge profile at: " + profilePath);
 
-        System.out.println("Using Edge profile at: " + profilePath);
+            if (BROWSER_BINARY != null) {
+                options.setBinary(BROWSER_BINARY);
+            }
+            if (HEADLESS) {
+                // A headless window cannot be maximized, give it the size of a desktop screen instead
+                options.addArguments("--headless=new", "--window-size=1920,1080");
+            }
+            if (debuggingPort > 0) {
+                options.addArguments("--remote-debugging-port=" + debuggingPort);
+            }
+            RESOURCE_FILTER.configure(options);
+        }
 
         // Initialize the WebDriver
-        this.driver = new EdgeDriver(options);
-        this.driver.manage().window().maximize(); // Maximize window to ensure elements are visible
+        try {
+            this.driver = new EdgeDriver(options);
+        } catch (SessionNotCreatedException e) {
+            // Usually Edge updated itself and the cached driver is now too old for it
+            if (!DriverCache.refreshAfterFailure()) {
+                throw e;
+            }
+            this.driver = new EdgeDriver(options);
+        }
+        RESOURCE_FILTER.apply(driver);
+        if (!HEADLESS && !attached) {
+            this.driver.manage().window().maximize(); // Maximize window to ensure elements are visible
+        }
         
         // Create a wait object for waiting for elements
         this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        // Waits that the page resolves itself through MutationObserver callbacks
+        this.domWaits = new DomWaits(driver, Duration.ofSeconds(10));
+        this.trendLookup = new TrendLookup(driver, domWaits);
+    }
+
+    /**
+     * The DevTools address of the daemon browser for a session. Sessions of a pool use one browser
+     * each, on consecutive ports, the same way BrowserDaemon starts them.
+     * @param session The session number, 0 for a single session
+     * @return host:port
+     */
+    private static String attachAddress(int session) {
+        int colon = ATTACH_ADDRESS.lastIndexOf(':');
+        String host = ATTACH_ADDRESS.substring(0, colon);
+        int port = Integer.parseInt(ATTACH_ADDRESS.substring(colon + 1));
+        return host + ":" + (port + Math.max(0, session - 1));
     }
 
     /**
@@ -45,45 +185,362 @@ public class StatScrapper {
      * @return List of Piloto objects with their stats
      */
     public List<Piloto> scrapeDriverStats() {
+        return scrapeDriverStats(ScrapeCheckpoint.open());
+    }
+
+    /**
+     * Scrape driver statistics, handing every driver to the checkpoint as soon as it is read
+     * @param checkpoint The checkpoint of this run
+     * @return List of Piloto objects with their stats
+     */
+    public List<Piloto> scrapeDriverStats(ScrapeCheckpoint checkpoint) {
         List<Piloto> pilotos = new ArrayList<>();
         
         try {
-            // Navigate to the website
-            driver.get("https://fantasy.formula1.com/en/statistics/details?tab=driver&filter=fAvg");
-
-            // Wait for the page to fully load
-            waitForPageToLoad();
-
-            // Find the parent container
-            WebElement container = wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector("#root > div > div.si-master__wrap > section.si-stats__wrap > div:nth-child(2) > div > div > div > div.si-stats__tracker-grid-rhs > div > div")));
-
-            // Find all LI elements inside the UL
-            WebElement ul = container.findElement(By.tagName("ul"));
-            List<WebElement> liElements = ul.findElements(By.tagName("li"));
+            List<WebElement> liElements = openDriverList();
 
             // Debug code to check things are returned properly
-            System.out.println("Found " + liElements.size() + " LI elements");
             for (WebElement liElement : liElements) {
                 System.out.println("Found element: " + liElement.getText());
             }
 
             // Process each driver in the list
-            for (int i = 1; i < liElements.size(); i++) {
-                Piloto piloto = processDriverElement(liElements, i);
+            int rowCount = liElements.size();
+            int failed = 0;
+            for (int i = 1; i < rowCount; i++) {
+                Piloto piloto = scrapeDriver(i, checkpoint);
                 if (piloto != null) {
                     pilotos.add(piloto);
+                } else {
+                    failed++;
+                    if (!isBrowserAlive()) {
+                        failed += rowCount - 1 - i;
+                        break;
+                    }
                 }
             }
 
+            // Keep the checkpoint when drivers are missing, so a rerun only scrapes those
+            if (failed == 0) {
+                checkpoint.clear();
+            } else {
+                System.out.println(failed + " drivers could not be scraped, run again to retry only those");
+            }
+
         } catch (Exception e) {
             System.err.println("An error occurred during web scraping:");
             e.printStackTrace();
         }
-        
+
+        TrendLookup.printStats();
         return pilotos;
     }
 
+    /**
+     * Scrape driver statistics from the JSON feeds the page loads instead of opening every popup
+     * @return List of Piloto objects with their stats
+     */
+    public List<Piloto> scrapeDriverStatsFromFeeds() {
+        try (FeedCapture capture = new FeedCapture()) {
+            // The interceptor has to be in place before the page starts loading its feeds
+            capture.start(driver);
+            openDriverList(false);
+
+            Set<String> missing = FeedParser.playersWithoutResults(capture.getResponses());
+            if (!missing.isEmpty()) {
+                fetchPlayerStats(capture, missing);
+            }
+
+            return FeedParser.parse(capture.getResponses());
+        } catch (Exception e) {
+            System.err.println("An error occurred during feed scraping:");
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Save the statistics page, every driver popup and the JSON feeds to a directory, so that
+     * {@link FixtureServer} can replay them later without network access
+     * @param directory The directory to write the fixtures to
+     * @return The number of popups recorded
+     */
+    public int recordFixtures(Path directory) {
+        int recorded = 0;
+        try (FeedCapture capture = new FeedCapture()) {
+            capture.start(driver);
+            List<WebElement> liElements = openDriverList(false);
+
+            Path popups = directory.resolve(FixtureServer.POPUP_DIRECTORY);
+            Files.createDirectories(popups);
+            String page = (String) ((JavascriptExecutor) driver).executeScript(PAGE_FIXTURE_SCRIPT);
+            Files.writeString(directory.resolve(FixtureServer.PAGE), page, StandardCharsets.UTF_8);
+
+            for (int i = 1; i < liElements.size(); i++) {
+                try {
+                    domWaits.scrollIntoView(liElements.get(i));
+                    liElements.get(i).click();
+                    domWaits.awaitVisible(Selectors.PLAYER_NAME);
+                    domWaits.awaitPresent(Selectors.PERFORMANCE_LIST);
+
+                    // The popup is the element two levels above its body, a direct child of the page wrapper
+                    String popup = (String) ((JavascriptExecutor) driver).executeScript(
+                            "return document.querySelector(arguments[0]).parentElement.parentElement.outerHTML;",
+                            Selectors.POPUP_BODY);
+                    Files.writeString(popups.resolve(i + ".html"), popup, StandardCharsets.UTF_8);
+                    recorded++;
+                    System.out.println("Recorded popup " + i + " of " + (liElements.size() - 1));
+                } catch (WebDriverException e) {
+                    System.out.println("Could not record popup " + i + ": " + e.getMessage());
+                }
+                closePopup();
+            }
+
+            List<String> feedPaths = new ArrayList<>();
+            for (Map.Entry<String, String> feed : capture.getResponses().entrySet()) {
+                String path = URI.create(feed.getKey()).getPath();
+                if (path == null || path.length() < 2) {
+                    continue;
+                }
+                Path file = directory.resolve(path.substring(1)).normalize();
+                if (!file.startsWith(directory.normalize())) {
+                    continue;
+                }
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, feed.getValue(), StandardCharsets.UTF_8);
+                feedPaths.add(path);
+            }
+            Files.write(directory.resolve(FixtureServer.FEED_MANIFEST), feedPaths, StandardCharsets.UTF_8);
+
+            System.out.println("Recorded the page, " + recorded + " popups and " + feedPaths.size()
+                    + " feeds to " + directory.toAbsolutePath());
+        } catch (IOException | WebDriverException e) {
+            System.err.println("An error occurred while recording fixtures:");
+            e.printStackTrace();
+        }
+        return recorded;
+    }
+
+    /**
+     * Fetch the per-driver stats feeds from inside the page, all in one async script call,
+     * so they use the page's cookies and origin
+     * @param capture The capture to add the payloads to
+     * @param playerIds The ids of the drivers to fetch
+     */
+    @SuppressWarnings("unchecked")
+    private void fetchPlayerStats(FeedCapture capture, Set<String> playerIds) {
+        System.out.println("Fetching stats feeds for " + playerIds.size() + " drivers...");
+        // Raised for this call only, the DomWaits scripts rely on the usual timeout
+        Duration previousTimeout = driver.manage().timeouts().getScriptTimeout();
+        driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(30));
+
+        Object result;
+        try {
+            result = ((JavascriptExecutor) driver).executeAsyncScript(
+                    "var ids = arguments[0], template = arguments[1], done = arguments[arguments.length - 1];" +
+                    "Promise.all(ids.map(function (id) {" +
+                    "  var url = new URL(template.replace('{id}', id), location.href).href;" +
+                    "  return fetch(url, {credentials: 'include'})" +
+                    "    .then(function (r) { return r.ok ? r.text() : null; })" +
+                    "    .catch(function () { return null; })" +
+                    "    .then(function (body) { return [url, body]; });" +
+                    "})).then(done);",
+                    new ArrayList<>(playerIds), PLAYER_STATS_URL);
+        } finally {
+            driver.manage().timeouts().scriptTimeout(previousTimeout);
+        }
+
+        for (Object entry : (List<Object>) result) {
+            List<Object> pair = (List<Object>) entry;
+            if (pair.get(1) != null) {
+                capture.record((String) pair.get(0), (String) pair.get(1));
+            }
+        }
+    }
+
+    /**
+     * Navigate to the statistics page and collect the driver rows. An attached browser that still
+     * shows a recent copy of the page is used as it is.
+     * @return The LI elements of the driver list, the first one being the header row
+     */
+    List<WebElement> openDriverList() {
+        return openDriverList(true);
+    }
+
+    /**
+     * Navigate to the statistics page and collect the driver rows
+     * @param reuseLoadedPage Whether an attached browser may skip loading the page again
+     * @return The LI elements of the driver list, the first one being the header row
+     */
+    private List<WebElement> openDriverList(boolean reuseLoadedPage) {
+        if (reuseLoadedPage && isPageLoaded()) {
+            System.out.println("Using the statistics page already open in the browser");
+        } else {
+            // Navigate to the website
+            driver.get(STATS_URL);
+
+            // Wait for the page to fully load
+            waitForPageToLoad();
+        }
+
+        // Find the parent container
+        WebElement container = wait.until(ExpectedConditions.presenceOfElementLocated(
+                By.cssSelector(Selectors.DRIVER_LIST)));
+
+        // Find all LI elements inside the UL
+        WebElement ul = container.findElement(By.tagName("ul"));
+        driverRows = ul.findElements(By.tagName("li"));
+        rowSignatures = readRowSignatures(ul);
+
+        System.out.println("Found " + driverRows.size() + " LI elements");
+        return driverRows;
+    }
+
+    /**
+     * @return true if the attached browser shows the statistics page, loaded recently enough and with no popup open
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isPageLoaded() {
+        if (!attached) {
+            return false;
+        }
+        try {
+            List<Object> page = (List<Object>) ((JavascriptExecutor) driver).executeScript(LOADED_PAGE_SCRIPT,
+                    Selectors.DRIVER_LIST + " ul", Selectors.POPUP_BODY);
+            long ageMillis = ((Number) page.get(1)).longValue();
+            return STATS_URL.equals(page.get(0)) && ageMillis <= ATTACHED_PAGE_MAX_AGE * 1000
+                    && Boolean.TRUE.equals(page.get(2)) && Boolean.FALSE.equals(page.get(3));
+        } catch (WebDriverException | ClassCastException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read the visible text of every driver row in one script call
+     * @param ul The list holding the driver rows
+     * @return The normalized text of each row, in the same order as the LI elements
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> readRowSignatures(WebElement ul) {
+        try {
+            return (List<String>) ((JavascriptExecutor) driver).executeScript(ROW_SIGNATURE_SCRIPT, ul);
+        } catch (WebDriverException e) {
+            System.out.println("Could not read the driver rows: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * @param index The index of the driver row
+     * @return The text of the row as read by {@link #openDriverList()}, or null if unknown
+     */
+    private String rowSignature(int index) {
+        return index < rowSignatures.size() ? rowSignatures.get(index) : null;
+    }
+
+    /**
+     * Find the rows that differ from the saved pilots, so only those popups have to be opened
+     * @param existingPilotos The saved pilots
+     * @return The indexes of the rows to update, skipping the header row
+     */
+    List<Integer> changedRows(List<Piloto> existingPilotos) {
+        Set<String> knownSignatures = new HashSet<>();
+        for (Piloto piloto : existingPilotos) {
+            if (piloto.getListSignature() != null) {
+                knownSignatures.add(piloto.getListSignature());
+            }
+        }
+
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 1; i < driverRows.size(); i++) {
+            String signature = rowSignature(i);
+            if (FULL_UPDATE || signature == null || !knownSignatures.contains(signature)) {
+                changed.add(i);
+            }
+        }
+
+        System.out.println((driverRows.size() - 1 - changed.size()) + " drivers unchanged since the last save, "
+                + changed.size() + " to check");
+        return changed;
+    }
+
+    /**
+     * Scrape a single driver from the list opened by {@link #openDriverList()}, retrying with a
+     * growing pause if its popup cannot be read. Drivers already in the checkpoint are not scraped again.
+     * @param index The index of the driver row
+     * @param checkpoint Where every scraped driver is saved
+     * @return a Piloto object with the driver's stats, or null if it could not be scraped
+     */
+    Piloto scrapeDriver(int index, ScrapeCheckpoint checkpoint) {
+        Piloto saved = checkpoint.completed(index, rowSignature(index));
+        if (saved != null) {
+            System.out.println("Driver " + index + " was already scraped: " + saved.getName());
+            checkpoint.record(index, saved);
+            return saved;
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            Piloto piloto = processDriverElement(driverRows, index);
+            if (piloto != null) {
+                checkpoint.record(index, piloto);
+                return piloto;
+            }
+            if (attempt >= RETRIES) {
+                System.out.println("Giving up on driver " + index + " after " + (attempt + 1) + " attempts");
+                return null;
+            }
+
+            // A dead browser will not come back, stop here and leave the rest to the next run
+            if (!isBrowserAlive()) {
+                System.out.println("The browser session is gone, leaving driver " + index + " to the next run");
+                return null;
+            }
+
+            long backoff = RETRY_BACKOFF_MILLIS << attempt;
+            System.out.println("Retrying driver " + index + " in " + backoff + " ms...");
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            // Start the retry from a freshly loaded list, in case the page got stuck
+            try {
+                openDriverList(false);
+            } catch (WebDriverException e) {
+                System.out.println("Could not reload the driver list: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Check that the browser still answers, e.g. it was not closed or did not crash
+     * @return true if the session can still be used
+     */
+    private boolean isBrowserAlive() {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Update a single driver from the list opened by {@link #openDriverList()}
+     * @param index The index of the driver row
+     * @param pilotMap Existing pilots by full name
+     */
+    void updateDriver(int index, Map<String, Piloto> pilotMap) {
+        try {
+            updateDriverElement(driverRows, index, pilotMap);
+        } catch (Exception e) {
+            System.out.println("Error updating element " + index + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Process a single driver element
      * @return a Piloto object with the driver's stats
@@ -93,14 +550,19 @@ public class StatScrapper {
             // Get the element
             WebElement element = liElements.get(index);
 
-            // Scroll the element into view
-            ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block: 'center'});", element);
+            // Scroll the element into view and wait until the browser has painted it there
+            domWaits.scrollIntoView(element);
+
+            if (SNAPSHOT_EXTRACTION) {
+                Piloto piloto = processDriverFromSnapshot(element, index);
+                if (piloto != null) {
+                    return piloto;
+                }
+            }
 
-            // Wait briefly for the scroll to complete
-            Thread.sleep(75);
             String teamName = "";
             try {
-                WebElement teamElement = element.findElement(By.cssSelector("div.si-stats__list-item.teamname"));
+                WebElement teamElement = element.findElement(By.cssSelector(Selectors.ROW_TEAM));
                 if (teamElement != null) {
                     teamName = teamElement.getText().trim();
                     System.out.println("Found team name: " + teamName);
@@ -117,14 +579,12 @@ public class StatScrapper {
 
             // Wait for the popup div to appear
             System.out.println("Waiting for popup to appear...");
-            WebElement popup = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                    By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__name")));
+            domWaits.awaitVisible(Selectors.PLAYER_NAME);
 
             System.out.println("Popup appeared successfully!");
 
             // Get player name
-            WebElement playerNameElement = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                    By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__name")));
+            WebElement playerNameElement = driver.findElement(By.cssSelector(Selectors.PLAYER_NAME));
             String playerName = playerNameElement.getText();
             System.out.println("Player Name: " + playerName);
             // Append team name to player name if it was found
@@ -133,104 +593,212 @@ public class StatScrapper {
                 System.out.println("Player Name with Team: " + playerName);
             }
 
-            // Get driver value from the popup - try all three possible selectors
-            WebElement playerValueElement;
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofMillis(30));
-            String selectorClass = ""; // Track which selector was successful
+            // Get driver value and trend from the popup, the class of the element gives the direction
+            TrendLookup.Trend trend = trendLookup.find();
 
-            try {
-                // Try with .si-up first with a very short wait
-                playerValueElement = shortWait.until(ExpectedConditions.visibilityOfElementLocated(
-                        By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.si-up")));
-                selectorClass = "si-up";
-            } catch (TimeoutException e) {
-                try {
-                    // If .si-up not found, try with .si-down with a short wait
-                    playerValueElement = shortWait.until(ExpectedConditions.visibilityOfElementLocated(
-                            By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.si-down")));
-                    selectorClass = "si-down";
-                } catch (TimeoutException e2) {
-                    // If both failed, try with .false using the normal wait
-                    playerValueElement = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                            By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.false")));
-                    selectorClass = "false";
-                }
-            }
+            // Get the text from the value element and build the driver from the accordions
+            Piloto piloto = buildPiloto(playerName, trend.text(), trend.variant(),
+                    extractAccordionData(), index);
 
-            // Get the text from the value element and extract both values
-            String fullText = playerValueElement.getText();
-            String[] lines = fullText.split("\\n");
+            // Close the popup
+            closePopup();
 
-            // Get the current value (first line)
-            String playerValue = lines[0].trim();
-            System.out.println("Player Value: " + playerValue);
-            double currentValue = cleanDriverValue(playerValue);
+            return piloto;
 
-            // Get the trend value (second line) if available
-            double trendValue = 0.0;
-            if (lines.length > 1 && !lines[1].trim().isEmpty()) {
-                String trendText = lines[1].trim();
-                System.out.println("Trend Text: " + trendText);
-                trendValue = cleanDriverValue(trendText);
+        } catch (Exception e) {
+            System.out.println("Error processing element " + index + ": " + e.getMessage());
+            e.printStackTrace();
+            // Return null in case of error
+            return null;
+        }
+    }
 
-                // Apply sign based on selector class
-                if (selectorClass.equals("si-down")) {
-                    trendValue = -trendValue; // Make it negative for downward trend
-                } else if (selectorClass.equals("false")) {
-                    trendValue = 0.0; // Set to zero for flat trend
-                }
-                // si-up remains positive
-            }
+    /**
+     * Open the popup of a driver and read everything from one page snapshot, instead of one
+     * WebDriver call per field
+     * @param element The driver row, already scrolled into view
+     * @param index The index of the driver row
+     * @return a Piloto object with the driver's stats, or null if the snapshot could not be read
+     */
+    private Piloto processDriverFromSnapshot(WebElement element, int index) {
+        System.out.println("Clicking on the " + index + " element...");
+        element.click();
+        domWaits.awaitVisible(Selectors.PLAYER_NAME);
+        domWaits.awaitPresent(Selectors.PERFORMANCE_LIST);
+
+        try {
+            PageSnapshot page = PageSnapshot.capture(driver, SNAPSHOT_TEXT_SELECTORS);
 
-            System.out.println("Current Value: " + currentValue);
-            System.out.println("Trend Value: " + trendValue);
+            String playerName = page.text(Selectors.PLAYER_NAME);
+            if (playerName == null) {
+                throw new NoSuchElementException("No player name in the page snapshot");
+            }
+            String teamName = rowTeamName(page, index);
+            if (!teamName.isEmpty()) {
+                playerName = playerName + " " + teamName;
+            }
+            System.out.println("Player Name: " + playerName);
 
+            TrendLookup.Trend trend = TrendLookup.find(page);
+            if (trend == null) {
+                throw new NoSuchElementException("No trend element in the page snapshot");
+            }
+            Piloto piloto = buildPiloto(playerName, trend.text(), trend.variant(), extractAccordionData(page), index);
 
-            // Create a Piloto object with the extracted name and value1
+            closePopup();
+            return piloto;
 
-            Piloto piloto = new Piloto(playerName);
+        } catch (RuntimeException e) {
+            System.out.println("Could not read the popup from a page snapshot, reading it element by element: "
+                    + e.getMessage());
+            closePopup();
+            return null;
+        }
+    }
 
-            // Extract accordion data and populate the Piloto object
-            Map<String, Integer> driverData = extractAccordionData();
+    /**
+     * @return The team shown in a row of the driver list, or "" if there is none
+     */
+    private String rowTeamName(PageSnapshot page, int index) {
+        List<Element> rows = page.listItems(Selectors.DRIVER_LIST);
+        Element team = index < rows.size() ? rows.get(index).selectFirst(Selectors.ROW_TEAM) : null;
+        return team == null ? "" : PageSnapshot.text(team);
+    }
 
-            int lastIndex = driverData.size() - 1;
+    /**
+     * Take a snapshot of the page with the popup open
+     * @return The snapshot, or null if snapshots are turned off or it could not be taken
+     */
+    private PageSnapshot capturePopup() {
+        if (!SNAPSHOT_EXTRACTION) {
+            return null;
+        }
+        try {
+            domWaits.awaitPresent(Selectors.PERFORMANCE_LIST);
+            PageSnapshot page = PageSnapshot.capture(driver, SNAPSHOT_TEXT_SELECTORS);
+            return page.first(Selectors.PLAYER_NAME) == null ? null : page;
+        } catch (WebDriverException e) {
+            System.out.println("Could not take a page snapshot, reading the popup element by element: "
+                    + e.getMessage());
+            return null;
+        }
+    }
 
-            // Add all data to the Piloto object
-            for (Map.Entry<String, Integer> entry : driverData.entrySet()) {
-                if(lastIndex == 0) {
-                    piloto.addCircuitData(entry.getKey(), entry.getValue(), currentValue, trendValue);
-                }else if(lastIndex == 1) {
-                    piloto.addCircuitData(entry.getKey(), entry.getValue(), currentValue, trendValue);
-                }else{
-                    piloto.addData(entry.getKey(), entry.getValue());
-                }
-                lastIndex--;
+    /**
+     * Create a pilot from the popup values. Only the last two circuits get the value and trend,
+     * the older ones keep just their points.
+     * @param playerName The full name of the driver
+     * @param valueText The text of the trend element, value on the first line and trend on the second
+     * @param trendVariant The direction of the trend, one of the TrendLookup variants
+     * @param driverData The points by circuit
+     * @param index The index of the driver row
+     * @return The new pilot
+     */
+    private Piloto buildPiloto(String playerName, String valueText, String trendVariant,
+                               Map<String, Integer> driverData, int index) {
+        String[] lines = valueText.split("\\n");
+
+        // Get the current value (first line)
+        String playerValue = lines[0].trim();
+        System.out.println("Player Value: " + playerValue);
+        double currentValue = cleanDriverValue(playerValue);
+
+        // Get the trend value (second line) if available
+        double trendValue = 0.0;
+        if (lines.length > 1 && !lines[1].trim().isEmpty()) {
+            String trendText = lines[1].trim();
+            System.out.println("Trend Text: " + trendText);
+            trendValue = cleanDriverValue(trendText);
+
+            // Apply sign based on the trend direction
+            if (trendVariant.equals(TrendLookup.DOWN)) {
+                trendValue = -trendValue; // Make it negative for downward trend
+            } else if (trendVariant.equals(TrendLookup.FLAT)) {
+                trendValue = 0.0; // Set to zero for flat trend
             }
+            // si-up remains positive
+        }
 
-            // Close the popup
-            closePopup();
+        System.out.println("Current Value: " + currentValue);
+        System.out.println("Trend Value: " + trendValue);
 
-            return piloto;
+        Piloto piloto = new Piloto(playerName);
+        piloto.setListSignature(rowSignature(index));
 
-        } catch (Exception e) {
-            System.out.println("Error processing element " + index + ": " + e.getMessage());
-            e.printStackTrace();
-            // Return null in case of error
-            return null;
+        int lastIndex = driverData.size() - 1;
+
+        // Add all data to the Piloto object
+        for (Map.Entry<String, Integer> entry : driverData.entrySet()) {
+            if (lastIndex <= 1) {
+                piloto.addCircuitData(entry.getKey(), entry.getValue(), currentValue, trendValue);
+            } else {
+                piloto.addData(entry.getKey(), entry.getValue());
+            }
+            lastIndex--;
+        }
+        return piloto;
+    }
+
+    /**
+     * Extract data from all accordion elements of a page snapshot
+     * @param page The page with the popup open
+     * @return Map with league/team names as keys and points as values
+     */
+    private Map<String, Integer> extractAccordionData(PageSnapshot page) {
+        Map<String, Integer> driverData = new LinkedHashMap<>();
+        for (int i = 0; ; i++) {
+            Element accordion = page.byId(Selectors.ACCORDION_ID_PREFIX + i);
+            if (accordion == null) {
+                break;
+            }
+            Element h3 = accordion.selectFirst(Selectors.ACCORDION_NAME);
+            Element points = accordion.selectFirst(Selectors.ACCORDION_POINTS);
+            putAccordionEntry(driverData, h3 == null ? "Unknown" : PageSnapshot.text(h3),
+                    cleanPoints(points == null ? "0" : PageSnapshot.text(points)));
         }
+        System.out.println("Total data extracted: " + driverData.size() + " leagues/teams");
+        return driverData;
     }
 
     /**
-     * Extract data from accordion elements
+     * Extract data from all accordion elements of the open popup in a single script call.
+     * Falls back to {@link #extractAccordionDataPerElement()} if the script cannot be run.
      * @return Map with league/team names as keys and points as values
      */
+    @SuppressWarnings("unchecked")
     private Map<String, Integer> extractAccordionData() {
+        Map<String, Integer> driverData = new LinkedHashMap<>();
+
+        try {
+            // Wait for the container to be present
+            domWaits.awaitPresent(Selectors.PERFORMANCE_LIST);
+
+            List<List<String>> rows = (List<List<String>>) ((JavascriptExecutor) driver).executeScript(ACCORDION_SCRIPT,
+                    Selectors.ACCORDION_ID_PREFIX, Selectors.ACCORDION_NAME, Selectors.ACCORDION_POINTS);
+            for (List<String> row : rows) {
+                putAccordionEntry(driverData, row.get(0), cleanPoints(row.get(1)));
+            }
+
+            // Report the collected data
+            System.out.println("Total data extracted: " + driverData.size() + " leagues/teams");
+            return driverData;
+
+        } catch (WebDriverException | ClassCastException | NullPointerException e) {
+            System.out.println("Bulk accordion extraction failed, reading accordions one by one: " + e.getMessage());
+            return extractAccordionDataPerElement();
+        }
+    }
+
+    /**
+     * Extract data from accordion elements, one WebDriver call per element
+     * @return Map with league/team names as keys and points as values
+     */
+    private Map<String, Integer> extractAccordionDataPerElement() {
         Map<String, Integer> driverData = new LinkedHashMap<>(); // Changed to LinkedHashMap to maintain order
         
         try {
             // Wait for the container to be present
-            wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector(".si-performance__list")));
+            domWaits.awaitPresent(Selectors.PERFORMANCE_LIST);
 
             System.out.println("Container found. Now searching for accordion elements...");
 
@@ -239,7 +807,7 @@ public class StatScrapper {
             boolean foundAccordion = true;
 
             while (foundAccordion) {
-                String accordionId = "accordion" + accordionIndex;
+                String accordionId = Selectors.ACCORDION_ID_PREFIX + accordionIndex;
                 try {
                     // Try to find this accordion element
                     WebElement accordion = driver.findElement(By.id(accordionId));
@@ -249,19 +817,7 @@ public class StatScrapper {
                     String[] leagueAndPoints = extractAccordionDetails(accordion);
 
                     if (leagueAndPoints != null && leagueAndPoints.length == 2) {
-                        String league = leagueAndPoints[0];
-                        String pointsString = leagueAndPoints[1];
-                        
-                        try {
-                            // Parse the points string to an integer
-                            Integer points = Integer.parseInt(pointsString);
-                            driverData.put(league, points);
-                            System.out.println("  Added to data: " + league + " = " + points + " points");
-                        } catch (NumberFormatException e) {
-                            System.out.println("Could not parse points value: " + pointsString);
-                            // Still add to map but with a value of 0
-                            driverData.put(league, 0);
-                        }
+                        putAccordionEntry(driverData, leagueAndPoints[0], leagueAndPoints[1]);
                     }
 
                     // Increment to look for next accordion
@@ -295,7 +851,7 @@ public class StatScrapper {
             String pointsStr = "0";
             
             // Look for any h3 element in this accordion - it's likely the league/team name
-            List<WebElement> h3Elements = accordion.findElements(By.tagName("h3"));
+            List<WebElement> h3Elements = accordion.findElements(By.cssSelector(Selectors.ACCORDION_NAME));
             if (!h3Elements.isEmpty()) {
                 league = h3Elements.get(0).getText();
                 System.out.println("  League/Team: " + league);
@@ -304,19 +860,13 @@ public class StatScrapper {
             }
 
             // Look for the points element
-            List<WebElement> pointsElements = accordion.findElements(By.className("si-totalPts__counts"));
+            List<WebElement> pointsElements = accordion.findElements(By.cssSelector(Selectors.ACCORDION_POINTS));
             if (!pointsElements.isEmpty()) {
                 // Get the full text of the points element
                 String fullText = pointsElements.get(0).getText().trim();
                 System.out.println("  Points (raw): " + fullText);
-                
-                // Remove " pts" from the end of the string
-                if (fullText.endsWith(" pts")) {
-                    pointsStr = fullText.substring(0, fullText.length() - 4).trim();
-                } else {
-                    pointsStr = fullText.trim();
-                }
-                
+
+                pointsStr = cleanPoints(fullText);
                 System.out.println("  Points (cleaned): " + pointsStr);
             } else {
                 System.out.println("  Points: Unknown (no si-totalPts__counts elements found)");
@@ -330,13 +880,44 @@ public class StatScrapper {
     }
 }
 
+    /**
+     * Parse the points of one accordion and add it to the driver data
+     * @param driverData The map to add the entry to
+     * @param league The league/team name
+     * @param pointsString The cleaned points text
+     */
+    private void putAccordionEntry(Map<String, Integer> driverData, String league, String pointsString) {
+        try {
+            // Parse the points string to an integer
+            Integer points = Integer.parseInt(pointsString);
+            driverData.put(league, points);
+            System.out.println("  Added to data: " + league + " = " + points + " points");
+        } catch (NumberFormatException e) {
+            System.out.println("Could not parse points value: " + pointsString);
+            // Still add to map but with a value of 0
+            driverData.put(league, 0);
+        }
+    }
+
+    /**
+     * Remove the " pts" suffix from a points text
+     * @return the points as text, ready to be parsed
+     */
+    private static String cleanPoints(String fullText) {
+        fullText = fullText.trim();
+        if (fullText.endsWith(" pts")) {
+            return fullText.substring(0, fullText.length() - 4).trim();
+        }
+        return fullText;
+    }
+
     /**
      * Close the popup window
      */
     private void closePopup() {
         try {
             // Find and click the close button
-            WebElement closeButton = driver.findElement(By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__close"));
+            WebElement closeButton = driver.findElement(By.cssSelector(Selectors.POPUP_CLOSE));
 
             // Wait briefly for the button to be clickable
             wait.until(ExpectedConditions.elementToBeClickable(closeButton));
@@ -344,9 +925,8 @@ public class StatScrapper {
             System.out.println("Clicking close button to dismiss the popup...");
             closeButton.click();
 
-            // Wait briefly for the popup to disappear
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(
-                    By.cssSelector(".si-popup__body")));
+            // Wait for the popup to disappear
+            domWaits.awaitGone(Selectors.POPUP_BODY);
 
             System.out.println("Popup closed successfully.");
 
@@ -364,17 +944,16 @@ public class StatScrapper {
             // Wait for the page to be in a ready state
             wait.until(webDriver -> ((JavascriptExecutor) webDriver)
                     .executeScript("return document.readyState").equals("complete"));
-            
-            // Additional wait to ensure everything is loaded
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Thread was interrupted while waiting for page to load");
+
+            // The list is rendered by scripts after the load event, wait until it stops changing
+            domWaits.awaitStable(Selectors.DRIVER_LIST + " ul", LIST_QUIET_MILLIS);
+        } catch (TimeoutException e) {
+            System.out.println("Driver list did not settle in time: " + e.getMessage());
         }
     }
     
     /**
-     * Close the WebDriver
+     * Close the WebDriver. An attached browser keeps running, only the connection to it is closed.
      */
     public void close() {
         if (driver != null) {
@@ -408,184 +987,182 @@ public class StatScrapper {
     }
 
     /**
-     * Updates existing pilots with new circuit data if available
-     * @param existingPilotos List of existing pilots to update
-     * @return The updated list of pilots
+     * Build a lookup map of pilots by their full name
+     * @param pilotos The pilots to index
+     * @return Map with the full pilot name as key
      */
-    public List<Piloto> updatePilotCircuits(List<Piloto> existingPilotos) {
-        if (existingPilotos == null || existingPilotos.isEmpty()) {
-            System.out.println("No existing pilots to update");
-            return new ArrayList<>();
+    static Map<String, Piloto> pilotsByName(List<Piloto> pilotos) {
+        Map<String, Piloto> pilotMap = new HashMap<>();
+        for (Piloto piloto : pilotos) {
+            pilotMap.put(piloto.getName(), piloto);
         }
+        return pilotMap;
+    }
 
-        System.out.println("Updating " + existingPilotos.size() + " pilots with new circuit data...");
+    /**
+     * Open the popup of a single driver row and add any new circuits to the matching pilot
+     * @param liElements The driver rows of the list
+     * @param index The index of the row to process
+     * @param pilotMap Existing pilots by full name
+     */
+    private void updateDriverElement(List<WebElement> liElements, int index, Map<String, Piloto> pilotMap) {
+        WebElement element = liElements.get(index);
+
+        // Unchanged rows are skipped, so the row can be anywhere in the list: bring it on screen before clicking
+        domWaits.scrollIntoView(element);
+        element.click();
+        // Wait for the popup to appear
+        domWaits.awaitVisible(Selectors.PLAYER_NAME);
+        // Read the popup from one snapshot when possible, field by field otherwise
+        PageSnapshot page = capturePopup();
+
+        // Get the driver name
+        String playerName = page != null ? page.text(Selectors.PLAYER_NAME)
+                : driver.findElement(By.cssSelector(Selectors.PLAYER_NAME)).getText();
+
+        // Get the team name if available
+        String teamName;
+        if (page != null) {
+            String popupTeam = page.text(Selectors.POPUP_TEAM);
+            teamName = popupTeam != null ? popupTeam : rowTeamName(page, index);
+        } else {
+            teamName = popupTeamName(element);
+        }
 
-        try {
-            // Navigate to the website
-            driver.get("https://fantasy.formula1.com/en/statistics/details?tab=driver&filter=fAvg");
+        // Combine player name and team
+        String fullName = playerName;
+        if (!teamName.isEmpty()) {
+            fullName = playerName + " " + teamName;
+        }
 
-            // Wait for the page to fully load
-            waitForPageToLoad();
+        System.out.println("Processing driver: " + fullName);
 
-            // Find the parent container
-            WebElement container = wait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.cssSelector("#root > div > div.si-master__wrap > section.si-stats__wrap > div:nth-child(2) > div > div > div > div.si-stats__tracker-grid-rhs > div > div")));
+        // Check if this driver exists in our list
+        Piloto existingPilot = pilotMap.get(fullName);
+        if (existingPilot != null) {
+            System.out.println("Found existing pilot: " + fullName);
 
-            // Find all LI elements inside the UL
-            WebElement ul = container.findElement(By.tagName("ul"));
-            List<WebElement> liElements = ul.findElements(By.tagName("li"));
+            // Get current value and trend
+            double currentValue = 0;
+            double trendValue = 0;
 
-            System.out.println("Found " + liElements.size() + " drivers on the website");
+            // Extract value and trend, from the snapshot if there is one
+            TrendLookup.Trend trend = page != null ? TrendLookup.find(page) : null;
+            if (trend == null) {
+                trend = trendLookup.find();
+            }
+            String fullText = trend.text();
+            String[] lines = fullText.split("\\n");
 
-            // Create a map of existing pilots by name for quick lookup
-            Map<String, Piloto> pilotMap = new HashMap<>();
-            for (Piloto piloto : existingPilotos) {
-                pilotMap.put(piloto.getName(), piloto);
+            // Get current value
+            if (lines.length > 0) {
+                String playerValue = lines[0].trim();
+                currentValue = cleanDriverValue(playerValue);
             }
 
-            // Process each driver in the list
-            for (int i = 1; i < liElements.size(); i++) {
-                WebElement element = liElements.get(i);
+            existingPilot.setValue( currentValue);
+            existingPilot.setListSignature(rowSignature(index));
 
-                // Click the driver element
-                if(i%4 == 0) {
-                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block: 'center'});", element);
-                    Thread.sleep(250);
-                }
-                element.click();
-                // Wait for the popup to appear
-                wait.until(ExpectedConditions.visibilityOfElementLocated(
-                        By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__name")));
-
-                // Get the driver name
-                WebElement playerNameElement = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                        By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__name")));
-                String playerName = playerNameElement.getText();
-
-                // Get the team name if available
-                String teamName = "";
-                try {
-                    // Try to find team name in the popup
-                    WebElement teamElement = driver.findElement(By.cssSelector(".si-player__team"));
-                    if (teamElement != null) {
-                        teamName = teamElement.getText().trim();
-                    }
-                } catch (Exception e) {
-                    // Team name not found in popup, try the list item
-                    try {
-                        WebElement teamElement = element.findElement(By.cssSelector("div.si-stats__list-item.teamname"));
-                        if (teamElement != null) {
-                            teamName = teamElement.getText().trim();
-                        }
-                    } catch (Exception ex) {
-                        // Continue without team name
-                    }
-                }
+            // Get trend value
+            if (lines.length > 1 && !lines[1].trim().isEmpty()) {
+                String trendText = lines[1].trim();
+                trendValue = cleanDriverValue(trendText);
 
-                // Combine player name and team
-                String fullName = playerName;
-                if (!teamName.isEmpty()) {
-                    fullName = playerName + " " + teamName;
+                // Apply sign based on the trend direction
+                if (trend.variant().equals(TrendLookup.DOWN)) {
+                    trendValue = -trendValue;
+                } else if (trend.variant().equals(TrendLookup.FLAT)) {
+                    trendValue = 0.0;
                 }
+            }
+
+            // Extract accordion data
+            Map<String, Integer> circuitData = page != null ? extractAccordionData(page) : extractAccordionData();
 
-                System.out.println("Processing driver: " + fullName);
-
-                // Check if this driver exists in our list
-                Piloto existingPilot = pilotMap.get(fullName);
-                if (existingPilot != null) {
-                    System.out.println("Found existing pilot: " + fullName);
-
-                    // Get current value and trend
-                    double currentValue = 0;
-                    double trendValue = 0;
-
-                    // Extract value and trend
-                    WebElement playerValueElement;
-                    WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofMillis(11));
-                    String selectorClass = "";
-
-                    try {
-                        // Try with .si-up first
-                        playerValueElement = shortWait.until(ExpectedConditions.visibilityOfElementLocated(
-                                By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.si-up")));
-                        selectorClass = "si-up";
-                    } catch (TimeoutException e) {
-                        try {
-                            // If .si-up not found, try with .si-down
-                            playerValueElement = shortWait.until(ExpectedConditions.visibilityOfElementLocated(
-                                    By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.si-down")));
-                            selectorClass = "si-down";
-                        } catch (TimeoutException e2) {
-                            // If both failed, try with .false
-                            playerValueElement = wait.until(ExpectedConditions.visibilityOfElementLocated(
-                                    By.cssSelector("#root > div > div.si-master__wrap > div > div > div.si-popup__body > div.si-driCon__playerInfo > div.si-player__trends.false")));
-                            selectorClass = "false";
-                        }
+            // Check for new circuits and add them
+            boolean foundNewCircuit = false;
+            
+            int circuitDataSize = circuitData.size() - 1;
+
+            for (Map.Entry<String, Integer> entry : circuitData.entrySet()) {
+                String circuitName = entry.getKey();
+                // Check if the circuit name exists as a key in the data map
+                if (!existingPilot.hasCircuit(circuitName)) {
+                    if(!(circuitDataSize == 0)) {
+                        System.out.println("Adding new circuit for " + fullName + ": " + circuitName);
+                        existingPilot.addCircuitData(circuitName, entry.getValue(), currentValue, trendValue);
+                        foundNewCircuit = true;
                     }
+                } else {
+                    System.out.println("Circuit " + circuitName + " already exists for " + fullName);
+                }
+                circuitDataSize--;
+            }
 
-                    // Get value and trend from text
-                    String fullText = playerValueElement.getText();
-                    String[] lines = fullText.split("\\n");
+            if (!foundNewCircuit) {
+                System.out.println("No new circuits found for " + fullName);
+            }
+        } else {
+            System.out.println("Driver not in existing list: " + fullName);
+        }
 
-                    // Get current value
-                    if (lines.length > 0) {
-                        String playerValue = lines[0].trim();
-                        currentValue = cleanDriverValue(playerValue);
-                    }
+        // Close the popup
+        closePopup();
+    }
 
-                    existingPilot.setValue( currentValue);
+    /**
+     * Read the team name of the open popup, or of the driver row if the popup has none
+     * @param row The driver row that was clicked
+     * @return The team name, or "" if there is none
+     */
+    private String popupTeamName(WebElement row) {
+        String teamName = "";
+        try {
+            // Try to find team name in the popup
+            WebElement teamElement = driver.findElement(By.cssSelector(Selectors.POPUP_TEAM));
+            if (teamElement != null) {
+                teamName = teamElement.getText().trim();
+            }
+        } catch (Exception e) {
+            // Team name not found in popup, try the list item
+            try {
+                WebElement teamElement = row.findElement(By.cssSelector(Selectors.ROW_TEAM));
+                if (teamElement != null) {
+                    teamName = teamElement.getText().trim();
+                }
+            } catch (Exception ex) {
+                // Continue without team name
+            }
+        }
+        return teamName;
+    }
 
-                    // Get trend value
-                    if (lines.length > 1 && !lines[1].trim().isEmpty()) {
-                        String trendText = lines[1].trim();
-                        trendValue = cleanDriverValue(trendText);
+    /**
+     * Updates existing pilots with new circuit data if available
+     * @param existingPilotos List of existing pilots to update
+     * @return The updated list of pilots
+     */
+    public List<Piloto> updatePilotCircuits(List<Piloto> existingPilotos) {
+        if (existingPilotos == null || existingPilotos.isEmpty()) {
+            System.out.println("No existing pilots to update");
+            return new ArrayList<>();
+        }
 
-                        // Apply sign based on selector class
-                        if (selectorClass.equals("si-down")) {
-                            trendValue = -trendValue;
-                        } else if (selectorClass.equals("false")) {
-                            trendValue = 0.0;
-                        }
-                    }
+        System.out.println("Updating " + existingPilotos.size() + " pilots with new circuit data...");
 
-                    // Extract accordion data
-                    Map<String, Integer> circuitData = extractAccordionData();
-
-                    // Check for new circuits and add them
-                    boolean foundNewCircuit = false;
-                    
-                    // Get the existing data map from the pilot
-                    Map<String, String> existingData = existingPilot.getData();
-
-                    int circuitDataSize = circuitData.size() - 1;
-
-                    for (Map.Entry<String, Integer> entry : circuitData.entrySet()) {
-                        String circuitName = entry.getKey();
-                        // Check if the circuit name exists as a key in the data map
-                        if (!existingData.containsKey(circuitName)) {
-                            if(!(circuitDataSize == 0)) {
-                                System.out.println("Adding new circuit for " + fullName + ": " + circuitName);
-                                existingPilot.addCircuitData(circuitName, entry.getValue(), currentValue, trendValue);
-                                foundNewCircuit = true;
-                            }
-                        } else {
-                            System.out.println("Circuit " + circuitName + " already exists for " + fullName);
-                        }
-                        circuitDataSize--;
-                    }
+        try {
+            List<WebElement> liElements = openDriverList();
 
-                    if (!foundNewCircuit) {
-                        System.out.println("No new circuits found for " + fullName);
-                    }
-                } else {
-                    System.out.println("Driver not in existing list: " + fullName);
-                }
+            // Create a map of existing pilots by name for quick lookup
+            Map<String, Piloto> pilotMap = pilotsByName(existingPilotos);
 
-                // Close the popup
-                closePopup();
+            // Process only the drivers whose row changed since the last save
+            for (int i : changedRows(existingPilotos)) {
+                updateDriverElement(liElements, i, pilotMap);
             }
 
             System.out.println("Finished checking for updates");
+            TrendLookup.printStats();
 
         } catch (Exception e) {
             System.err.println("Error updating pilots: " + e.getMessage());
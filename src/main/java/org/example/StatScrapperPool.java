@@ -0,0 +1,183 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+public class StatScrapperPool {
+    private final List<StatScrapper> sessions = new ArrayList<>();
+    private final BlockingQueue<StatScrapper> idleSessions;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor - starts the given number of browser sessions in parallel
+     * @param sessionCount The number of browser sessions, and the number of drivers scraped at once
+     */
+    public StatScrapperPool(int sessionCount) {
+        int count = Math.max(1, sessionCount);
+        this.idleSessions = new ArrayBlockingQueue<>(count);
+        this.executor = Executors.newFixedThreadPool(count);
+
+        // Browser startup is the slowest part, so launch every session at the same time
+        List<Future<StatScrapper>> startups = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int session = i + 1;
+            startups.add(executor.submit(() -> new StatScrapper(session)));
+        }
+        for (Future<StatScrapper> startup : startups) {
+            try {
+                sessions.add(startup.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Could not start browser session: " + e.getCause().getMessage());
+            }
+        }
+        System.out.println("Started " + sessions.size() + " browser sessions");
+    }
+
+    /**
+     * Scrape every driver, spreading the rows over the browser sessions
+     * @return List of Piloto objects in the same order as the website list
+     */
+    public List<Piloto> scrapeDriverStats() {
+        return scrapeDriverStats(ScrapeCheckpoint.open());
+    }
+
+    /**
+     * Scrape every driver, spreading the rows over the browser sessions
+     * @param checkpoint The checkpoint of this run, every session hands its drivers to it
+     * @return List of Piloto objects in the same order as the website list
+     */
+    public List<Piloto> scrapeDriverStats(ScrapeCheckpoint checkpoint) {
+        int rowCount = openDriverLists();
+        Piloto[] results = new Piloto[rowCount];
+
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 1; i < rowCount; i++) {
+            rows.add(i);
+        }
+        runForEachRow(rows, (session, index) -> results[index] = session.scrapeDriver(index, checkpoint));
+
+        // Merge the results keeping the order of the website, skipping failed drivers
+        List<Piloto> pilotos = new ArrayList<>();
+        for (Piloto piloto : results) {
+            if (piloto != null) {
+                pilotos.add(piloto);
+            }
+        }
+
+        // Keep the checkpoint when drivers are missing, so a rerun only scrapes those
+        int missing = Math.max(0, rowCount - 1) - pilotos.size();
+        if (rowCount > 0 && missing == 0) {
+            checkpoint.clear();
+        } else if (missing > 0) {
+            System.out.println(missing + " drivers could not be scraped, run again to retry only those");
+        }
+        TrendLookup.printStats();
+        return pilotos;
+    }
+
+    /**
+     * Updates existing pilots with new circuit data, spreading the rows over the browser sessions
+     * @param existingPilotos List of existing pilots to update
+     * @return The updated list of pilots
+     */
+    public List<Piloto> updatePilotCircuits(List<Piloto> existingPilotos) {
+        if (existingPilotos == null || existingPilotos.isEmpty()) {
+            System.out.println("No existing pilots to update");
+            return new ArrayList<>();
+        }
+
+        System.out.println("Updating " + existingPilotos.size() + " pilots with new circuit data...");
+
+        // Each pilot is matched by exactly one row, so sessions never touch the same Piloto
+        Map<String, Piloto> pilotMap = StatScrapper.pilotsByName(existingPilotos);
+        if (openDriverLists() == 0) {
+            return existingPilotos;
+        }
+
+        // Only the rows that changed since the last save need a popup
+        List<Integer> changed = sessions.get(0).changedRows(existingPilotos);
+        runForEachRow(changed, (session, index) -> session.updateDriver(index, pilotMap));
+
+        System.out.println("Finished checking for updates");
+        TrendLookup.printStats();
+        return existingPilotos;
+    }
+
+    /**
+     * Load the statistics page in every session
+     * @return The number of driver rows, taken from the shortest list seen
+     */
+    private int openDriverLists() {
+        List<Future<Integer>> loads = new ArrayList<>();
+        for (StatScrapper session : sessions) {
+            loads.add(executor.submit(() -> session.openDriverList().size()));
+        }
+
+        int rowCount = Integer.MAX_VALUE;
+        for (Future<Integer> load : loads) {
+            try {
+                rowCount = Math.min(rowCount, load.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            } catch (ExecutionException e) {
+                System.err.println("Could not open driver list: " + e.getCause().getMessage());
+                return 0;
+            }
+        }
+
+        idleSessions.clear();
+        idleSessions.addAll(sessions);
+        return rowCount == Integer.MAX_VALUE ? 0 : rowCount;
+    }
+
+    /**
+     * Run a task for each of the given driver rows on the executor.
+     * Each task borrows an idle session, so a WebDriver is never used by two threads at once.
+     */
+    private void runForEachRow(List<Integer> rows, RowTask task) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int index : rows) {
+            futures.add(executor.submit(() -> {
+                StatScrapper session = idleSessions.take();
+                try {
+                    task.run(session, index);
+                } finally {
+                    idleSessions.put(session);
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("Error processing driver row: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Close every browser session and stop the executor
+     */
+    public void close() {
+        executor.shutdownNow();
+        for (StatScrapper session : sessions) {
+            session.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowTask {
+        void run(StatScrapper session, int index) throws Exception;
+    }
+}
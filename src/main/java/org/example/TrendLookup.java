@@ -0,0 +1,128 @@
+package org.example;
+
+import org.jsoup.nodes.Element;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the value/trend element of the open popup and reads the direction of the trend from its
+ * class attribute. One script call answers the common case, where the popup has already rendered it.
+ * <p>
+ * Counts which variant each lookup found and how many had to wait, summed over every session,
+ * and checks the variants in the order they are most often found.
+ */
+public class TrendLookup {
+    public static final String UP = "si-up";
+    public static final String DOWN = "si-down";
+    public static final String FLAT = "false";
+    private static final String UNKNOWN = "unknown";
+
+    // Returns [class, text] of the trend element, or null while it has no text yet
+    private static final String LOOKUP_SCRIPT =
+            "var el = document.querySelector(arguments[0]);" +
+            "var text = el ? el.innerText.trim() : '';" +
+            "return text ? [el.getAttribute('class') || '', text] : null;";
+
+    private static final Map<String, LongAdder> HITS = new LinkedHashMap<>();
+    private static final LongAdder WAITS = new LongAdder();
+
+    static {
+        for (String variant : new String[] {UP, DOWN, FLAT, UNKNOWN}) {
+            HITS.put(variant, new LongAdder());
+        }
+    }
+
+    /**
+     * The trend element of a popup
+     * @param variant The direction: UP, DOWN or FLAT
+     * @param text The value on the first line and the trend on the second
+     */
+    public record Trend(String variant, String text) {
+    }
+
+    private final WebDriver driver;
+    private final DomWaits domWaits;
+
+    /**
+     * @param driver The driver showing the popup
+     * @param domWaits Used when the trend element is not rendered yet
+     */
+    public TrendLookup(WebDriver driver, DomWaits domWaits) {
+        this.driver = driver;
+        this.domWaits = domWaits;
+    }
+
+    /**
+     * Read the trend of the open popup, waiting for it only if it is not there yet
+     * @return The trend
+     */
+    @SuppressWarnings("unchecked")
+    public Trend find() {
+        List<String> result = (List<String>) ((JavascriptExecutor) driver).executeScript(LOOKUP_SCRIPT, Selectors.TRENDS);
+        if (result == null) {
+            WAITS.increment();
+            domWaits.awaitVisible(Selectors.TRENDS);
+            result = (List<String>) ((JavascriptExecutor) driver).executeScript(LOOKUP_SCRIPT, Selectors.TRENDS);
+            if (result == null) {
+                throw new NoSuchElementException("Trend element has no value: " + Selectors.TRENDS);
+            }
+        }
+        return classify(result.get(0), result.get(1));
+    }
+
+    /**
+     * Read the trend from a page snapshot
+     * @param page The page with the popup open
+     * @return The trend, or null if the page has no trend element
+     */
+    public static Trend find(PageSnapshot page) {
+        Element element = page.first(Selectors.TRENDS);
+        return element == null ? null : classify(element.className(), PageSnapshot.text(element));
+    }
+
+    /**
+     * Tell the direction from the class attribute. A class that is none of the known variants is
+     * counted as unknown and taken as flat, so the driver is still scraped.
+     */
+    static Trend classify(String className, String text) {
+        Set<String> classes = new HashSet<>(Arrays.asList(className.trim().split("\\s+")));
+        for (String variant : variantsByHits()) {
+            if (classes.contains(variant)) {
+                HITS.get(variant).increment();
+                return new Trend(variant, text);
+            }
+        }
+        HITS.get(UNKNOWN).increment();
+        System.out.println("Unknown trend class \"" + className + "\", taking the trend as flat");
+        return new Trend(FLAT, text);
+    }
+
+    private static List<String> variantsByHits() {
+        List<String> variants = new ArrayList<>(Arrays.asList(UP, DOWN, FLAT));
+        variants.sort((a, b) -> Long.compare(HITS.get(b).sum(), HITS.get(a).sum()));
+        return variants;
+    }
+
+    /**
+     * Print how often each variant was found, most frequent first
+     */
+    public static void printStats() {
+        long total = 0;
+        StringBuilder variants = new StringBuilder();
+        for (String variant : variantsByHits()) {
+            long hits = HITS.get(variant).sum();
+            total += hits;
+            variants.append(variant).append(' ').append(hits).append(", ");
+        }
+        long unknown = HITS.get(UNKNOWN).sum();
+        total += unknown;
+        variants.append(UNKNOWN).append(' ').append(unknown);
+
+        System.out.println("Trend lookups: " + total + " (" + variants + "), "
+                + WAITS.sum() + " had to wait for the element");
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The feed mode against a local stub: {@link FixtureServer} serves the sample feeds in
+ * src/test/resources/feeds, they are fetched over HTTP like the page does and parsed
+ */
+class FeedParserTest {
+    private static FixtureServer server;
+    private static List<Piloto> pilotos;
+
+    @BeforeAll
+    static void serveAndParse() throws Exception {
+        Path feeds = Paths.get(FeedParserTest.class.getResource("/feeds").toURI());
+        server = new FixtureServer(feeds, 0, 0, 0);
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI page = URI.create(server.getUrl());
+        Map<String, String> payloads = new LinkedHashMap<>();
+        for (String path : Files.readAllLines(feeds.resolve(FixtureServer.FEED_MANIFEST), StandardCharsets.UTF_8)) {
+            if (path.isBlank()) {
+                continue;
+            }
+            URI uri = page.resolve(path.trim());
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), uri.toString());
+            payloads.put(uri.toString(), response.body());
+        }
+        pilotos = FeedParser.parse(payloads);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void parsesDriversButNotConstructors() {
+        assertEquals(List.of("Lando Norris McLaren", "Oscar Piastri McLaren", "Oliver Bearman Haas F1 Team"),
+                pilotos.stream().map(Piloto::getName).toList());
+    }
+
+    @Test
+    void readsPointsOfEveryRaceInOrder() {
+        assertRaces(pilotos.get(0), 25, 18, 31);
+        assertRaces(pilotos.get(1), 19, -5, 12);
+        assertRaces(pilotos.get(2), 6, 14, 9);
+    }
+
+    @Test
+    void putsValueAndTrendOnTheLastTwoRaces() {
+        assertValue(pilotos.get(0), 29.4, 0.3);
+        assertValue(pilotos.get(1), 26.2, -0.6);
+        assertValue(pilotos.get(2), 7.6, 0.2);
+    }
+
+    private static void assertRaces(Piloto piloto, int... points) {
+        assertEquals(points.length, piloto.getCircuitCount());
+        String[] circuits = {"Bahrain", "Saudi Arabia", "Australia"};
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(circuits[i], piloto.getCircuitName(i));
+            assertEquals(points[i], piloto.getCircuitPoints(i), piloto.getName() + " race " + i);
+        }
+    }
+
+    private static void assertValue(Piloto piloto, double value, double trend) {
+        assertEquals(value, piloto.getValue());
+        assertFalse(piloto.hasCircuitValue(0), "only the last two races know the value");
+        for (int i = 1; i < 3; i++) {
+            assertEquals(value, piloto.getCircuitValue(i), 1e-9);
+            assertEquals(trend, piloto.getCircuitTrend(i), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The thresholds are solved in closed form; these tests hold them to the point-by-point scan
+ * PriceCalc used to run, which every saved threshold was computed with
+ */
+class PriceCalcTest {
+
+    /**
+     * The original scan: from -1000 points upward, each band continuing from the previous one,
+     * averaging (ppm1 + ppm2 + next) / 3. It never ended for inputs where the band can't be
+     * reached, so it stops at the same cap as PriceCalc's fallback scan.
+     */
+    private static int[] scan(double ppm1, double ppm2, double currentValue) {
+        double[] targets = {PriceCalc.POOR_PPM, PriceCalc.GOOD_PPM, PriceCalc.EXCELLENT_PPM};
+        int[] thresholds = new int[3];
+        int points = PriceCalc.MIN_POINTS;
+        for (int band = 0; band < 3; band++) {
+            while (points < PriceCalc.MAX_SCAN_POINTS && (ppm1 + ppm2 + points / currentValue) / 3 < targets[band]) {
+                points++;
+            }
+            thresholds[band] = points;
+        }
+        return thresholds;
+    }
+
+    private static void assertSameAsScan(double ppm1, double ppm2, double currentValue) {
+        PriceThresholds thresholds = PriceCalc.computeThresholds(ppm1, ppm2, currentValue);
+        int[] expected = scan(ppm1, ppm2, currentValue);
+        String input = "ppm1=" + ppm1 + " ppm2=" + ppm2 + " value=" + currentValue;
+        assertEquals(expected[0], thresholds.pointsToPoor(), "Poor for " + input);
+        assertEquals(expected[1], thresholds.pointsToGood(), "Good for " + input);
+        assertEquals(expected[2], thresholds.pointsToExcelent(), "Excellent for " + input);
+    }
+
+    @Test
+    void matchesScanOnRandomDrivers() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 100_000; i++) {
+            // Values are whole tenths like the website shows, race values too
+            double value = random.nextInt(1, 350) / 10.0;
+            double ppm1 = random.nextInt(-20, 60) / (random.nextInt(1, 350) / 10.0);
+            double ppm2 = random.nextInt(-20, 60) / (random.nextInt(1, 350) / 10.0);
+            assertSameAsScan(ppm1, ppm2, value);
+        }
+    }
+
+    @Test
+    void matchesScanOnRoundingBoundaries() {
+        // Past races chosen so that a whole number of points lands exactly on a band limit,
+        // where the floating point average can end up just below or just above it
+        SplittableRandom random = new SplittableRandom(11);
+        double[] targets = {PriceCalc.POOR_PPM, PriceCalc.GOOD_PPM, PriceCalc.EXCELLENT_PPM};
+        for (int i = 0; i < 100_000; i++) {
+            double value = random.nextInt(1, 350) / 10.0;
+            int points = random.nextInt(-20, 80);
+            double ppm2 = random.nextInt(-20, 60) / (random.nextInt(1, 350) / 10.0);
+            double ppm1 = targets[i % 3] * 3 - points / value - ppm2;
+            assertSameAsScan(ppm1, ppm2, value);
+            assertSameAsScan(Math.nextUp(ppm1), ppm2, value);
+            assertSameAsScan(Math.nextDown(ppm1), ppm2, value);
+        }
+    }
+
+    @Test
+    void matchesScanWithoutAValue() {
+        // Drivers loaded from the DOM never had setValue called, so the value is 0
+        for (double value : new double[]{0.0, -0.0, -0.1, -5.0, -30.0}) {
+            assertSameAsScan(0.5, 0.7, value);
+            assertSameAsScan(-1.0, 0.0, value);
+            assertSameAsScan(3.0, 2.0, value);
+        }
+    }
+
+    @Test
+    void matchesScanWithZeroNaNAndInfinitePpm() {
+        // A race without a value has a PPM of points / 0: NaN for 0 points, infinite otherwise
+        double[] ppms = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.9, -2.0};
+        for (double ppm1 : ppms) {
+            for (double ppm2 : ppms) {
+                for (double value : new double[]{0.0, 0.1, 8.5, 30.0}) {
+                    assertSameAsScan(ppm1, ppm2, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    void windowOfThreeMatchesScan() {
+        // -Dprice.window=3 averages three past races with the next one
+        SplittableRandom random = new SplittableRandom(13);
+        for (int i = 0; i < 20_000; i++) {
+            double value = random.nextInt(1, 350) / 10.0;
+            double ppmSum = random.nextInt(-60, 180) / (random.nextInt(1, 350) / 10.0);
+            PriceThresholds thresholds = PriceCalc.computeThresholdsOverWindow(ppmSum, 3, value);
+            int points = PriceCalc.MIN_POINTS;
+            while ((ppmSum + points / value) / 4 < PriceCalc.POOR_PPM) {
+                points++;
+            }
+            assertEquals(points, thresholds.pointsToPoor(), "Poor for ppmSum=" + ppmSum + " value=" + value);
+            while ((ppmSum + points / value) / 4 < PriceCalc.EXCELLENT_PPM) {
+                points++;
+            }
+            assertEquals(points, thresholds.pointsToExcelent(), "Excellent for ppmSum=" + ppmSum + " value=" + value);
+        }
+    }
+
+    @Test
+    void matchesScanOnSavedSnapshots() throws Exception {
+        File[] files = new File("data").listFiles((dir, name) -> name.endsWith(".dat"));
+        assertNotNull(files);
+        int checked = 0;
+        for (File file : files) {
+            List<Piloto> pilotos = DataManager.loadLegacyPilots(file);
+            for (Piloto piloto : pilotos) {
+                int last = piloto.getCircuitCount() - 1;
+                if (last < 1) {
+                    continue;
+                }
+                double ppm1 = piloto.getCircuitPoints(last - 1) / piloto.getRaceValue(last - 1);
+                double ppm2 = piloto.getCircuitPoints(last) / piloto.getRaceValue(last);
+                assertSameAsScan(ppm1, ppm2, piloto.getValue());
+                // The same drivers at the value of their last race, in case getValue() was never set
+                assertSameAsScan(ppm1, ppm2, piloto.getCurrentValue());
+                checked++;
+            }
+        }
+        assertTrue(checked > 0, "no driver with two races in data/*.dat");
+    }
+}
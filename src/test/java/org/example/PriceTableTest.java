@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * What-ifs from the table against pricing each driver of a saved season with {@link PriceCalc#price(Piloto)}
+ */
+class PriceTableTest {
+
+    @Test
+    void answersWhatIfsLikePriceCalc() throws IOException {
+        List<Piloto> pilotos = SnapshotCodecTest.savedPilots();
+        PriceTable table = PriceCalc.buildTable(pilotos);
+        assertEquals(pilotos.size(), table.size());
+
+        for (Piloto piloto : pilotos) {
+            int row = table.row(piloto.getName());
+            assertEquals(piloto.getName(), table.name(row));
+            PriceResult result = PriceCalc.price(piloto);
+            PriceThresholds thresholds = result.thresholds();
+            if (thresholds == null) {
+                continue;
+            }
+
+            // Past both ends of the stored range too, where the table computes the answer on the spot
+            for (int points = PriceTable.MIN_POINTS - 20; points <= PriceTable.MAX_POINTS + 20; points++) {
+                String whatIf = piloto.getName() + " scoring " + points;
+                int band = PriceSimulation.outcome(thresholds.pointsToPoor(), thresholds.pointsToGood(),
+                        thresholds.pointsToExcelent(), points);
+                assertEquals(band, table.band(row, points), whatIf);
+                assertEquals(PriceSimulation.changeTenths(result.currentValue(), band),
+                        table.changeTenths(row, points), whatIf);
+
+                // The band is the one the average reaches
+                double average = table.averagePpm(row, points);
+                assertEquals(average >= PriceCalc.POOR_PPM, band >= PriceSimulation.POOR, whatIf);
+                assertEquals(average >= PriceCalc.GOOD_PPM, band >= PriceSimulation.GOOD, whatIf);
+                assertEquals(average >= PriceCalc.EXCELLENT_PPM, band >= PriceSimulation.EXCELLENT, whatIf);
+            }
+        }
+        assertEquals(-1, table.row("Nobody"));
+    }
+
+    @Test
+    void usesThePricedValueForTheTier() {
+        // No value set: priced and tiered at 0 like processLastTwoEntries, even though the last
+        // race put the driver in tier A
+        Piloto piloto = new Piloto("Lando NORRIS McLaren");
+        piloto.addCircuitData("Bahrain", 25, 29.1, 0.3);
+        piloto.addCircuitData("Saudi Arabia", 18, 29.4, 0.3);
+        assertEquals(0.0, piloto.getValue());
+        assertTrue(piloto.getCurrentValue() >= PriceSimulation.TIER_A_VALUE);
+
+        PriceTable table = PriceCalc.buildTable(List.of(piloto));
+        PriceResult result = PriceCalc.price(piloto);
+        for (int points = -10; points <= 40; points++) {
+            assertEquals(PriceSimulation.changeTenths(result.currentValue(), table.band(0, points)),
+                    table.changeTenths(0, points), "scoring " + points);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The snapshot file format, written from and checked against a real saved snapshot
+ */
+class SnapshotCodecTest {
+    // A season saved by the old serialization, with points-only races and no list signatures
+    static final File SAVED_PILOTS = new File("data/pilots.dat");
+
+    @TempDir
+    Path directory;
+
+    static List<Piloto> savedPilots() throws IOException {
+        return DataManager.loadLegacyPilots(SAVED_PILOTS);
+    }
+
+    /**
+     * Every field the snapshot format stores, circuit by circuit
+     */
+    static void assertSamePilots(List<Piloto> expected, List<Piloto> actual) {
+        assertEquals(expected.stream().map(Piloto::getName).toList(), actual.stream().map(Piloto::getName).toList());
+        for (int p = 0; p < expected.size(); p++) {
+            Piloto want = expected.get(p);
+            Piloto got = actual.get(p);
+            String name = want.getName();
+            assertEquals(want.getListSignature(), got.getListSignature(), name);
+            assertEquals(want.getValue(), got.getValue(), name);
+            assertEquals(want.getPointsToPoor(), got.getPointsToPoor(), name);
+            assertEquals(want.getPointsToGood(), got.getPointsToGood(), name);
+            assertEquals(want.getPointsToExcelent(), got.getPointsToExcelent(), name);
+            assertEquals(want.getCircuitCount(), got.getCircuitCount(), name);
+            for (int i = 0; i < want.getCircuitCount(); i++) {
+                assertEquals(want.getCircuitName(i), got.getCircuitName(i), name + " race " + i);
+                assertEquals(want.getCircuitPoints(i), got.getCircuitPoints(i), name + " race " + i);
+                assertEquals(want.getCircuitValueTenths(i), got.getCircuitValueTenths(i), name + " race " + i);
+                assertEquals(want.getCircuitTrendTenths(i), got.getCircuitTrendTenths(i), name + " race " + i);
+            }
+        }
+    }
+
+    private Path writeSaved() throws IOException {
+        Path file = directory.resolve("pilots.f1s");
+        SnapshotCodec.write(savedPilots(), file);
+        return file;
+    }
+
+    private static void assertRejected(byte[] bytes, Path file) throws IOException {
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> SnapshotCodec.read(file), bytes.length + " bytes");
+    }
+
+    @Test
+    void roundTripsASavedSnapshot() throws IOException {
+        List<Piloto> pilots = savedPilots();
+        assertTrue(pilots.stream().allMatch(p -> p.getListSignature() == null), "expected no signatures");
+        assertTrue(pilots.stream().anyMatch(p -> p.getCircuitCount() > 0 && !p.hasCircuitValue(0)),
+                "expected points-only races");
+        pilots.get(1).setListSignature("Oscar PIASTRI|McLaren|26.2");
+
+        Path file = directory.resolve("pilots.f1s");
+        SnapshotCodec.write(pilots, file);
+        List<Piloto> read = SnapshotCodec.read(file);
+
+        assertSamePilots(pilots, read);
+        assertNull(read.get(0).getListSignature());
+        assertFalse(read.get(0).hasCircuitValue(0));
+        assertFalse(Files.exists(directory.resolve("pilots.f1s.tmp")), "temp file left behind");
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        byte[] bytes = Files.readAllBytes(writeSaved());
+        Path truncated = directory.resolve("truncated.f1s");
+        for (int length = 0; length < bytes.length; length++) {
+            assertRejected(Arrays.copyOf(bytes, length), truncated);
+        }
+    }
+
+    @Test
+    void rejectsABadMagic() throws IOException {
+        byte[] bytes = Files.readAllBytes(writeSaved());
+        bytes[0] ^= 0x20;
+        assertRejected(bytes, directory.resolve("magic.f1s"));
+    }
+
+    @Test
+    void rejectsHugeCounts() throws IOException {
+        byte[] bytes = Files.readAllBytes(writeSaved());
+        Path file = directory.resolve("counts.f1s");
+
+        // The circuit name count follows the magic and the version
+        for (int count : new int[]{Integer.MAX_VALUE, -1}) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(6, count);
+            assertRejected(corrupt, file);
+        }
+
+        // The pilot count follows the circuit names
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+        int circuitNames = buffer.getInt(6);
+        buffer.position(10);
+        for (int i = 0; i < circuitNames; i++) {
+            SnapshotCodec.getString(buffer);
+        }
+        buffer.putInt(buffer.position(), Integer.MAX_VALUE);
+        assertRejected(buffer.array(), file);
+    }
+}
@@ -0,0 +1,126 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import static org.example.SnapshotCodecTest.assertSamePilots;
+import static org.example.SnapshotCodecTest.savedPilots;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The journaled store, saving a real season and a race after it and reading them back from disk
+ */
+class SnapshotStoreTest {
+    @TempDir
+    File directory;
+
+    /**
+     * The saved season one race later: new results, a changed value, a driver gone and two swapped
+     */
+    private static List<Piloto> nextRace() throws IOException {
+        List<Piloto> pilots = savedPilots();
+        pilots.get(0).addCircuitData("Spain", 26, 31.4, 0.4);
+        pilots.get(1).addData("Spain", -3);
+        pilots.get(2).setValue(12.3);
+        pilots.get(3).setListSignature("Max VERSTAPPEN|Red Bull Racing|28.5");
+        pilots.remove(4);
+        Collections.swap(pilots, 5, 6);
+        return pilots;
+    }
+
+    private Path journal(int segment) {
+        return new File(directory, String.format("journal-%06d.log", segment)).toPath();
+    }
+
+    @Test
+    void replaysTheJournalAfterReopening() throws IOException {
+        List<Piloto> season = savedPilots();
+        List<Piloto> spain = nextRace();
+
+        SnapshotStore store = new SnapshotStore(directory);
+        assertTrue(store.isEmpty());
+        store.commit(season, "Monaco");
+        // Nothing changed, only the commit record is written
+        assertEquals(1, store.commit(season, "Monaco again"));
+        store.commit(spain, "Spain");
+
+        SnapshotStore reopened = new SnapshotStore(directory);
+        assertSamePilots(spain, reopened.loadLatest());
+        assertSamePilots(season, reopened.loadByLabel("monaco"));
+        assertSamePilots(spain, reopened.loadByLabel("SPAIN"));
+        assertNull(reopened.loadByLabel("Canada"));
+        assertEquals(List.of("Monaco", "Monaco again", "Spain"),
+                reopened.listCommits().stream().map(SnapshotStore.Commit::label).toList());
+    }
+
+    @Test
+    void ignoresATornSaveAtTheEndOfTheJournal() throws IOException {
+        List<Piloto> season = savedPilots();
+        SnapshotStore store = new SnapshotStore(directory);
+        store.commit(season, "Monaco");
+        long committed = Files.size(journal(1));
+        store.commit(nextRace(), "Spain");
+        long full = Files.size(journal(1));
+
+        // Cut the second save in the middle of a record, before its commit
+        try (FileChannel channel = FileChannel.open(journal(1), StandardOpenOption.WRITE)) {
+            channel.truncate(committed + (full - committed) / 2);
+        }
+
+        SnapshotStore reopened = new SnapshotStore(directory);
+        assertSamePilots(season, reopened.loadLatest());
+        assertEquals(List.of("Monaco"), reopened.listCommits().stream().map(SnapshotStore.Commit::label).toList());
+        assertEquals(committed, Files.size(journal(1)), "torn save not dropped");
+
+        // The next save appends on a record boundary again
+        List<Piloto> spain = nextRace();
+        reopened.commit(spain, "Spain");
+        assertSamePilots(spain, new SnapshotStore(directory).loadByLabel("Spain"));
+    }
+
+    @Test
+    void keepsEverySaveAcrossCompaction() throws IOException {
+        List<Piloto> season = savedPilots();
+        List<Piloto> spain = nextRace();
+
+        SnapshotStore store = new SnapshotStore(directory);
+        store.commit(season, "Monaco");
+        store.compact();
+        assertTrue(new File(directory, "base-000002.f1s").exists());
+        assertEquals(0, Files.size(journal(2)));
+        store.commit(spain, "Spain");
+
+        SnapshotStore reopened = new SnapshotStore(directory);
+        assertSamePilots(spain, reopened.loadLatest());
+        assertSamePilots(season, reopened.loadByLabel("Monaco"));
+        List<SnapshotStore.Commit> commits = reopened.listCommits();
+        assertEquals(List.of(1, 2), commits.stream().map(SnapshotStore.Commit::segment).toList());
+        assertEquals(commits, List.copyOf(reopened.loadEverySave().keySet()));
+        assertSamePilots(season, reopened.loadEverySave().get(commits.get(0)));
+    }
+
+    @Test
+    void compactsOnItsOwnAfterManySaves() throws IOException {
+        List<Piloto> season = savedPilots();
+        SnapshotStore store = new SnapshotStore(directory);
+        for (int race = 1; race <= 25; race++) {
+            season.get(0).setValue(30 + race / 10.0);
+            store.commit(season, "Race " + race);
+        }
+
+        assertTrue(new File(directory, "base-000002.f1s").exists(), "no compaction after 25 saves");
+        SnapshotStore reopened = new SnapshotStore(directory);
+        assertSamePilots(season, reopened.loadLatest());
+        assertEquals(25, reopened.listCommits().size());
+        assertEquals(30.7, reopened.loadByLabel("Race 7").get(0).getValue());
+    }
+}